@@ -1,5 +1,6 @@
 package ti.vives.be.apitizers;
 
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import ti.vives.be.apitizers.config.FirebaseConfig;
@@ -15,7 +16,7 @@ public class ApitizersApplication {
 		try {
 			FirebaseConfig.initializeFirebase();
 		} catch (IOException e) {
-			e.printStackTrace();
+			LoggerFactory.getLogger(ApitizersApplication.class).error("Firebase failed to initialize", e);
 			System.exit(1); // Exit if Firebase fails to initialize
 		}
 	}
@@ -0,0 +1,51 @@
+package ti.vives.be.apitizers.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+public class DatabaseAdmissionConfig {
+
+    // Static so the post processor does not force early initialization of this configuration class
+    @Bean
+    public static BeanPostProcessor databaseAdmissionLimiter(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof AdmissionLimitedDataSource) {
+                    return bean;
+                }
+                int maxConcurrency = environment.getRequiredProperty("apitizers.db.max-concurrency", Integer.class);
+                Duration timeout = environment.getRequiredProperty("apitizers.db.admission-timeout", Duration.class);
+                return new AdmissionLimitedDataSource(dataSource, maxConcurrency, timeout);
+            }
+        };
+    }
+
+    // Requests waiting here never reach the pool, so the hikaricp.* metrics alone would look healthy
+    @Bean
+    public MeterBinder databaseAdmissionMetrics(DataSource dataSource) {
+        return registry -> {
+            if (!(dataSource instanceof AdmissionLimitedDataSource limiter)) {
+                return;
+            }
+            Gauge.builder("apitizers.db.admission.available", limiter, AdmissionLimitedDataSource::getAvailablePermits)
+                    .description("Free database admission permits")
+                    .register(registry);
+            Gauge.builder("apitizers.db.admission.waiting", limiter, AdmissionLimitedDataSource::getQueueLength)
+                    .description("Requests waiting for a database admission permit")
+                    .register(registry);
+            FunctionCounter.builder("apitizers.db.admission.rejected", limiter, AdmissionLimitedDataSource::getRejectedCount)
+                    .description("Requests that gave up after the admission timeout")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,44 @@
+package ti.vives.be.apitizers.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import ti.vives.be.apitizers.util.FirebaseStorageUtil;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@EnableScheduling
+public class ImageUploadConfig {
+
+    // Bounded on both concurrency and queue length; uploads that do not fit are picked up by the retry sweep
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService imageUploadExecutor(@Value("${apitizers.images.upload-threads}") int threads,
+                                               @Value("${apitizers.images.queue-capacity}") int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofVirtual().name("image-upload-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // apitizers.storage.upload timer (by outcome) and apitizers.storage.upload.size, recorded by FirebaseStorageUtil
+    @Bean
+    public MeterBinder storageUploadMetrics() {
+        return FirebaseStorageUtil::bindMetrics;
+    }
+
+    // CPU bound decode/resize work, sized to the cores rather than to the number of uploads
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService imageProcessingExecutor(@Value("${apitizers.images.processing-threads}") int threads,
+                                                   @Value("${apitizers.images.queue-capacity}") int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("image-processing-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -2,7 +2,9 @@ package ti.vives.be.apitizers.controller;
 
 import ti.vives.be.apitizers.dto.response.CategoryResponse;
 import ti.vives.be.apitizers.service.CategoryService;
+import ti.vives.be.apitizers.util.ETagUtil;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -22,7 +24,10 @@ public class CategoryController {
     }
 
     @GetMapping
-    public List<CategoryResponse> getAllCategories() {
+    public List<CategoryResponse> getAllCategories(WebRequest webRequest) {
+        if (webRequest.checkNotModified(ETagUtil.collectionETag("categories", categoryService.getCollectionVersion()))) {
+            return null;
+        }
         return categoryService.getAllCategories();
     }
 }
@@ -3,9 +3,11 @@ package ti.vives.be.apitizers.controller;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ti.vives.be.apitizers.dto.request.IngredientRequest;
 import ti.vives.be.apitizers.dto.response.IngredientResponse;
 import ti.vives.be.apitizers.service.IngredientService;
+import ti.vives.be.apitizers.util.ETagUtil;
 
 import java.util.List;
 
@@ -20,7 +22,10 @@ public class IngredientController {
     }
 
     @GetMapping
-    public List<IngredientResponse> getAllIngredients() {
+    public List<IngredientResponse> getAllIngredients(WebRequest webRequest) {
+        if (webRequest.checkNotModified(ETagUtil.collectionETag("ingredients", ingredientService.getCollectionVersion()))) {
+            return null;
+        }
         return ingredientService.getAllIngredients();
     }
 
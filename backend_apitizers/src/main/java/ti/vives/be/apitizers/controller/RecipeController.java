@@ -1,36 +1,117 @@
 package ti.vives.be.apitizers.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ti.vives.be.apitizers.dto.request.RecipeRequest;
+import ti.vives.be.apitizers.dto.response.BatchItemResponse;
+import ti.vives.be.apitizers.dto.response.PageResponse;
 import ti.vives.be.apitizers.dto.response.RecipeResponse;
+import ti.vives.be.apitizers.dto.response.RecipeSummaryResponse;
+import ti.vives.be.apitizers.exceptions.BadRequestException;
+import ti.vives.be.apitizers.service.CategoryService;
+import ti.vives.be.apitizers.service.RecipeExportService;
+import ti.vives.be.apitizers.service.RecipeImportService;
+import ti.vives.be.apitizers.service.RecipeSearchService;
 import ti.vives.be.apitizers.service.RecipeService;
+import ti.vives.be.apitizers.util.ETagUtil;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/recipes")
 public class RecipeController {
 
-    private final RecipeService recipeService;
+    private static final String SMILE_VALUE = "application/x-jackson-smile";
+    private static final String CBOR_VALUE = "application/cbor";
+
+    // Representations of a recipe detail, in the order they are preferred when the client accepts several
+    private static final MediaType[] DETAIL_TYPES = {MediaType.APPLICATION_JSON,
+            MediaType.parseMediaType(SMILE_VALUE), MediaType.parseMediaType(CBOR_VALUE)};
 
-    public RecipeController(RecipeService recipeService) {
+    private final RecipeService recipeService;
+    private final RecipeSearchService recipeSearchService;
+
+    private final CategoryService categoryService;
+    private final RecipeImportService recipeImportService;
+    private final RecipeExportService recipeExportService;
+    private final ContentNegotiationManager contentNegotiationManager;
+
+    public RecipeController(RecipeService recipeService,
+                            RecipeSearchService recipeSearchService,
+                            CategoryService categoryService,
+                            RecipeImportService recipeImportService,
+                            RecipeExportService recipeExportService,
+                            ContentNegotiationManager contentNegotiationManager) {
         this.recipeService = recipeService;
+        this.recipeSearchService = recipeSearchService;
+        this.categoryService = categoryService;
+        this.recipeImportService = recipeImportService;
+        this.recipeExportService = recipeExportService;
+        this.contentNegotiationManager = contentNegotiationManager;
     }
 
     @GetMapping
-    public List<RecipeResponse> getAllRecipes() {
-        return recipeService.getAllRecipes();
+    public PageResponse<RecipeSummaryResponse> getAllRecipes(
+            @RequestParam(defaultValue = "20") Integer limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "false") boolean favorite,
+            WebRequest webRequest) {
+        // Summaries include the category name, so category changes are part of the ETag as well
+        String etag = ETagUtil.collectionETag("recipes", recipeService.getCollectionVersion(),
+                categoryService.getCollectionVersion().getVersionSum(), limit, after, favorite);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return recipeService.getAllRecipes(limit, after, favorite);
+    }
+
+    // GET /api/recipes?ids=3,1,2[&expand=ingredients]: one entry per id, in the same order
+    @GetMapping(params = "ids")
+    public List<BatchItemResponse<RecipeResponse>> getRecipesByIds(
+            @RequestParam List<Integer> ids,
+            @RequestParam(required = false) String expand) {
+        return recipeService.getRecipesByIds(ids, expandsIngredients(expand));
+    }
+
+    @GetMapping("/search")
+    public PageResponse<RecipeSummaryResponse> searchRecipes(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "20") Integer limit,
+            @RequestParam(required = false) String after) {
+        return recipeSearchService.search(query, limit, after);
     }
 
-    @GetMapping("/{id}")
-    public RecipeResponse getRecipeById(@PathVariable Integer id) {
-        return recipeService.getRecipeById(id);
+    @GetMapping(value = "/{id}", produces = {MediaType.APPLICATION_JSON_VALUE, SMILE_VALUE, CBOR_VALUE})
+    public RecipeResponse getRecipeById(@PathVariable Integer id,
+                                        @RequestParam(required = false) String expand,
+                                        NativeWebRequest webRequest) throws HttpMediaTypeNotAcceptableException {
+        if (expandsIngredients(expand)) {
+            // No validators: the recipe version does not change when only its ingredients do
+            return recipeService.getRecipeWithIngredients(id);
+        }
+
+        // The detail is usually served from the cache, so the validators come from the cached response
+        RecipeResponse recipe = recipeService.getRecipeById(id);
+        if (webRequest.checkNotModified(ETagUtil.recipeETag(id, recipe.getVersion(), detailType(webRequest)),
+                ETagUtil.lastModified(recipe.getUpdatedAt()))) {
+            return null;
+        }
+        return recipe;
     }
 
     @PostMapping(consumes = {"multipart/form-data"})
@@ -38,40 +119,54 @@ public class RecipeController {
             @RequestPart("recipe") String recipeJson,
             @RequestPart(value = "image", required = false) MultipartFile imageFile) throws IOException {
 
-        // Debugging: Log the incoming JSON and image
-        System.out.println("Received recipe JSON: " + recipeJson);
-        if (imageFile != null) {
-            System.out.println("Received image: " + imageFile.getOriginalFilename());
-        } else {
-            System.out.println("No image received");
-        }
-
         // Map the JSON string to a RecipeRequest object
         ObjectMapper objectMapper = new ObjectMapper();
         RecipeRequest recipeRequest = objectMapper.readValue(recipeJson, RecipeRequest.class);
 
-
-        System.out.println("Received recipe: " + recipeRequest);
-        if (imageFile != null) {
-            System.out.println("Received image: " + imageFile.getOriginalFilename());
-        } else {
-            System.out.println("No image received");
-        }
-
         RecipeResponse response = recipeService.createRecipe(recipeRequest, imageFile);
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
-    @PutMapping(value = "/{id}", consumes = {"multipart/form-data"})
-    public RecipeResponse updateRecipe(
+    // NDJSON in, NDJSON out. Written straight to the response so progress reaches the client while the upload
+    // is still being read; the request thread is virtual, so blocking on a long import is cheap.
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public void importRecipes(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        recipeImportService.importRecipes(body, response.getOutputStream());
+    }
+
+    // The whole catalog as NDJSON (default) or CSV. Rows are written as they come off the cursor,
+    // so memory use does not grow with the number of recipes.
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportRecipes(@RequestParam(defaultValue = "ndjson") String format) {
+        RecipeExportService.Format exportFormat = RecipeExportService.Format.parse(format);
+        MediaType contentType = exportFormat == RecipeExportService.Format.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : MediaType.APPLICATION_NDJSON;
+        String fileName = "recipes." + exportFormat.name().toLowerCase();
+
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(out -> recipeExportService.export(exportFormat, out));
+    }
+
+    @PutMapping(value = "/{id}", consumes = {"multipart/form-data"},
+            produces = {MediaType.APPLICATION_JSON_VALUE, SMILE_VALUE, CBOR_VALUE})
+    public ResponseEntity<RecipeResponse> updateRecipe(
             @PathVariable Integer id,
             @RequestPart("recipe") String recipeJson,
-            @RequestPart(value = "image", required = false) MultipartFile imageFile) throws IOException {
+            @RequestPart(value = "image", required = false) MultipartFile imageFile,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            NativeWebRequest webRequest) throws IOException, HttpMediaTypeNotAcceptableException {
 
         ObjectMapper objectMapper = new ObjectMapper();
         RecipeRequest recipeRequest = objectMapper.readValue(recipeJson, RecipeRequest.class);
 
-        return recipeService.updateRecipe(id, recipeRequest, imageFile);
+        RecipeResponse response = recipeService.updateRecipe(id, recipeRequest, imageFile, ifMatch);
+        return ResponseEntity.ok()
+                .eTag(ETagUtil.recipeETag(response.getId(), response.getVersion(), detailType(webRequest)))
+                .body(response);
     }
 
 
@@ -87,4 +182,26 @@ public class RecipeController {
         return ResponseEntity.ok(updatedRecipe);
     }
 
+    private static boolean expandsIngredients(String expand) {
+        if (expand == null) {
+            return false;
+        }
+        if (!expand.equals("ingredients")) {
+            throw new BadRequestException("Unsupported expand '" + expand + "', only 'ingredients' is supported.");
+        }
+        return true;
+    }
+
+    // The representation the message converters will pick for this request (same Accept order, same types),
+    // so the strong ETag can name it before the body is written
+    private MediaType detailType(NativeWebRequest webRequest) throws HttpMediaTypeNotAcceptableException {
+        for (MediaType accepted : contentNegotiationManager.resolveMediaTypes(webRequest)) {
+            for (MediaType type : DETAIL_TYPES) {
+                if (accepted.isCompatibleWith(type)) {
+                    return type;
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
 }
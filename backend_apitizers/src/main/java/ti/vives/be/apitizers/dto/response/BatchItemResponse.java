@@ -0,0 +1,39 @@
+package ti.vives.be.apitizers.dto.response;
+
+// One entry of a multi-get, in the order the ids were requested. Item is null when found is false.
+public class BatchItemResponse<T> {
+
+    private Integer id;
+    private boolean found;
+    private T item;
+
+    public BatchItemResponse(Integer id, T item) {
+        this.id = id;
+        this.found = item != null;
+        this.item = item;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public boolean isFound() {
+        return found;
+    }
+
+    public void setFound(boolean found) {
+        this.found = found;
+    }
+
+    public T getItem() {
+        return item;
+    }
+
+    public void setItem(T item) {
+        this.item = item;
+    }
+}
@@ -0,0 +1,34 @@
+package ti.vives.be.apitizers.dto.response;
+
+// One line of an NDJSON import that was not imported
+public class ImportErrorResponse {
+
+    private final String type = "error";
+    private long line;
+    private String message;
+
+    public ImportErrorResponse(long line, String message) {
+        this.line = line;
+        this.message = message;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public void setLine(long line) {
+        this.line = line;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
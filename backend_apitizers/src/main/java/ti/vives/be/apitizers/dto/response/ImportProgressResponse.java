@@ -0,0 +1,54 @@
+package ti.vives.be.apitizers.dto.response;
+
+// Running totals of an NDJSON import, sent after every committed chunk and once more at the end (done = true)
+public class ImportProgressResponse {
+
+    private final String type = "progress";
+    private long lines;
+    private long imported;
+    private long failed;
+    private boolean done;
+
+    public ImportProgressResponse(long lines, long imported, long failed, boolean done) {
+        this.lines = lines;
+        this.imported = imported;
+        this.failed = failed;
+        this.done = done;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public void setLines(long lines) {
+        this.lines = lines;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    public void setDone(boolean done) {
+        this.done = done;
+    }
+}
@@ -0,0 +1,124 @@
+package ti.vives.be.apitizers.dto.response;
+
+import java.time.Instant;
+import java.util.List;
+
+// One line of the NDJSON export: the recipe with its ingredients
+public class RecipeExportResponse {
+
+    private Integer id;
+    private String name;
+    private String description;
+    private String instructions;
+    private Boolean isHealthy;
+    private Boolean isFavorite;
+    private String categoryName;
+    private String image;
+    private Integer version;
+    private Instant updatedAt;
+    private List<RecipeIngredientResponse> ingredients;
+
+    public RecipeExportResponse(Integer id, String name, String description, String instructions, Boolean isHealthy,
+                                Boolean isFavorite, String categoryName, String image, Integer version, Instant updatedAt,
+                                List<RecipeIngredientResponse> ingredients) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.instructions = instructions;
+        this.isHealthy = isHealthy;
+        this.isFavorite = isFavorite;
+        this.categoryName = categoryName;
+        this.image = image;
+        this.version = version;
+        this.updatedAt = updatedAt;
+        this.ingredients = ingredients;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getInstructions() {
+        return instructions;
+    }
+
+    public void setInstructions(String instructions) {
+        this.instructions = instructions;
+    }
+
+    public Boolean getIsHealthy() {
+        return isHealthy;
+    }
+
+    public void setIsHealthy(Boolean isHealthy) {
+        this.isHealthy = isHealthy;
+    }
+
+    public Boolean getIsFavorite() {
+        return isFavorite;
+    }
+
+    public void setIsFavorite(Boolean isFavorite) {
+        this.isFavorite = isFavorite;
+    }
+
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    public void setCategoryName(String categoryName) {
+        this.categoryName = categoryName;
+    }
+
+    public String getImage() {
+        return image;
+    }
+
+    public void setImage(String image) {
+        this.image = image;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public List<RecipeIngredientResponse> getIngredients() {
+        return ingredients;
+    }
+
+    public void setIngredients(List<RecipeIngredientResponse> ingredients) {
+        this.ingredients = ingredients;
+    }
+}
@@ -1,5 +1,7 @@
 package ti.vives.be.apitizers.dto.response;
 
+import java.time.Instant;
+
 public class RecipeResponse {
 
     private Integer id;
@@ -10,8 +12,13 @@ public class RecipeResponse {
     private Boolean isFavorite;
     private String categoryName;
     private String image;
+    private String imageCard;
+    private String imageThumbnail;
+    private String imageState;
+    private Integer version;
+    private Instant updatedAt;
 
-    public RecipeResponse(Integer id, String name, String description, String instructions, Boolean isHealthy, Boolean isFavorite, String categoryName, String image) {
+    public RecipeResponse(Integer id, String name, String description, String instructions, Boolean isHealthy, Boolean isFavorite, String categoryName, String image, String imageCard, String imageThumbnail, String imageState, Integer version, Instant updatedAt) {
         this.id = id;
         this.name = name;
         this.description = description;
@@ -20,6 +27,11 @@ public class RecipeResponse {
         this.isFavorite = isFavorite;
         this.categoryName = categoryName;
         this.image = image;
+        this.imageCard = imageCard;
+        this.imageThumbnail = imageThumbnail;
+        this.imageState = imageState;
+        this.version = version;
+        this.updatedAt = updatedAt;
     }
 
     public Integer getId() {
@@ -85,4 +97,44 @@ public class RecipeResponse {
     public void setImage(String image) {
         this.image = image;
     }
+
+    public String getImageCard() {
+        return imageCard;
+    }
+
+    public void setImageCard(String imageCard) {
+        this.imageCard = imageCard;
+    }
+
+    public String getImageThumbnail() {
+        return imageThumbnail;
+    }
+
+    public void setImageThumbnail(String imageThumbnail) {
+        this.imageThumbnail = imageThumbnail;
+    }
+
+    public String getImageState() {
+        return imageState;
+    }
+
+    public void setImageState(String imageState) {
+        this.imageState = imageState;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
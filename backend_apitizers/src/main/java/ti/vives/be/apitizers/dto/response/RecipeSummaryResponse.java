@@ -0,0 +1,69 @@
+package ti.vives.be.apitizers.dto.response;
+
+public class RecipeSummaryResponse {
+
+    private Integer id;
+    private String name;
+    private Boolean isHealthy;
+    private Boolean isFavorite;
+    private String categoryName;
+    private String image;
+
+    // Used as a JPQL constructor expression, so the list query never loads the LOB columns
+    public RecipeSummaryResponse(Integer id, String name, Boolean isHealthy, Boolean isFavorite, String categoryName, String image) {
+        this.id = id;
+        this.name = name;
+        this.isHealthy = isHealthy;
+        this.isFavorite = isFavorite;
+        this.categoryName = categoryName;
+        this.image = image;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Boolean getIsHealthy() {
+        return isHealthy;
+    }
+
+    public void setIsHealthy(Boolean isHealthy) {
+        this.isHealthy = isHealthy;
+    }
+
+    public Boolean getIsFavorite() {
+        return isFavorite;
+    }
+
+    public void setIsFavorite(Boolean isFavorite) {
+        this.isFavorite = isFavorite;
+    }
+
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    public void setCategoryName(String categoryName) {
+        this.categoryName = categoryName;
+    }
+
+    public String getImage() {
+        return image;
+    }
+
+    public void setImage(String image) {
+        this.image = image;
+    }
+}
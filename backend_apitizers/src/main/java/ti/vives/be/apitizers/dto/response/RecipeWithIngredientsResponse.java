@@ -0,0 +1,23 @@
+package ti.vives.be.apitizers.dto.response;
+
+import java.time.Instant;
+import java.util.List;
+
+// GET /api/recipes/{id}?expand=ingredients: the recipe detail plus what GET /api/recipes/{id}/ingredients returns
+public class RecipeWithIngredientsResponse extends RecipeResponse {
+
+    private List<RecipeIngredientResponse> ingredients;
+
+    public RecipeWithIngredientsResponse(Integer id, String name, String description, String instructions, Boolean isHealthy, Boolean isFavorite, String categoryName, String image, String imageCard, String imageThumbnail, String imageState, Integer version, Instant updatedAt, List<RecipeIngredientResponse> ingredients) {
+        super(id, name, description, instructions, isHealthy, isFavorite, categoryName, image, imageCard, imageThumbnail, imageState, version, updatedAt);
+        this.ingredients = ingredients;
+    }
+
+    public List<RecipeIngredientResponse> getIngredients() {
+        return ingredients;
+    }
+
+    public void setIngredients(List<RecipeIngredientResponse> ingredients) {
+        this.ingredients = ingredients;
+    }
+}
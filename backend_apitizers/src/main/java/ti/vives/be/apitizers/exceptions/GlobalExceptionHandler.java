@@ -0,0 +1,26 @@
+package ti.vives.be.apitizers.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+    // A concurrent write bumped the @Version between our read and our flush
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public String handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException e) {
+        return "The resource was modified by someone else, reload it and try again.";
+    }
+
+    // No database connection within the admission timeout: overloaded (or down), ask the client to back off
+    @ExceptionHandler(CannotCreateTransactionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String handleNoConnection(CannotCreateTransactionException e) {
+        return "The service is busy, try again later.";
+    }
+}
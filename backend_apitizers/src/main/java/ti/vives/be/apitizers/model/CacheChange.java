@@ -0,0 +1,76 @@
+package ti.vives.be.apitizers.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.time.Instant;
+
+// Append-only log of committed writes that replicas tail to evict their local caches
+@Entity
+@Table(name = "Cache_Change", indexes = @Index(name = "ix_cache_change_created_at", columnList = "created_at"))
+public class CacheChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 20)
+    private CachedEntity entityType;
+
+    @NotNull
+    @Column(name = "entity_id", nullable = false)
+    private Integer entityId;
+
+    // Instance that made the change, it has already evicted its own caches
+    @Size(max = 36)
+    @NotNull
+    @Column(name = "origin", nullable = false, length = 36)
+    private String origin;
+
+    @NotNull
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public CachedEntity getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(CachedEntity entityType) {
+        this.entityType = entityType;
+    }
+
+    public Integer getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Integer entityId) {
+        this.entityId = entityId;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public void setOrigin(String origin) {
+        this.origin = origin;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+}
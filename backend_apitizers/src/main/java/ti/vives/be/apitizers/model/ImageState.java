@@ -0,0 +1,7 @@
+package ti.vives.be.apitizers.model;
+
+public enum ImageState {
+    PENDING,
+    READY,
+    FAILED
+}
@@ -0,0 +1,134 @@
+package ti.vives.be.apitizers.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.Nationalized;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "Image_Upload", indexes = @Index(name = "ix_image_upload_owner_next_attempt", columnList = "spool_owner, next_attempt_at"))
+public class ImageUpload {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Integer id;
+
+    @NotNull
+    @Column(name = "recipe_id", nullable = false)
+    private Integer recipeId;
+
+    // Local file holding the bytes until the upload succeeds
+    @Size(max = 500)
+    @NotNull
+    @Nationalized
+    @Column(name = "spool_path", nullable = false, length = 500)
+    private String spoolPath;
+
+    // Instance whose spool directory holds the file
+    @Size(max = 255)
+    @NotNull
+    @Nationalized
+    @Column(name = "spool_owner", nullable = false)
+    private String spoolOwner;
+
+    // SHA-256 of the spooled bytes, computed while spooling
+    @Size(max = 64)
+    @NotNull
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @Size(max = 255)
+    @Nationalized
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Size(max = 255)
+    @Nationalized
+    @Column(name = "original_filename")
+    private String originalFilename;
+
+    @NotNull
+    @ColumnDefault("0")
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @NotNull
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Integer getRecipeId() {
+        return recipeId;
+    }
+
+    public void setRecipeId(Integer recipeId) {
+        this.recipeId = recipeId;
+    }
+
+    public String getSpoolPath() {
+        return spoolPath;
+    }
+
+    public void setSpoolPath(String spoolPath) {
+        this.spoolPath = spoolPath;
+    }
+
+    public String getSpoolOwner() {
+        return spoolOwner;
+    }
+
+    public void setSpoolOwner(String spoolOwner) {
+        this.spoolOwner = spoolOwner;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    public void setOriginalFilename(String originalFilename) {
+        this.originalFilename = originalFilename;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(Instant nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+}
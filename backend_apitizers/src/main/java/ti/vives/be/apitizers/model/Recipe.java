@@ -5,7 +5,9 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.Nationalized;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -48,6 +50,32 @@ public class Recipe {
     @Column(name = "image")
     private String image;
 
+    @Size(max = 1000)
+    @Column(name = "image_card", length = 1000)
+    private String imageCard;
+
+    @Size(max = 1000)
+    @Column(name = "image_thumbnail", length = 1000)
+    private String imageThumbnail;
+
+    // Content hash of the stored image, null for images uploaded before deduplication
+    @Size(max = 64)
+    @Column(name = "image_hash", length = 64)
+    private String imageHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "image_state", length = 20)
+    private ImageState imageState;
+
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Integer version;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
     @OneToMany(mappedBy = "recipe", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<RecipeIngredient> recipeIngredients = new ArrayList<>();
 
@@ -115,6 +143,54 @@ public class Recipe {
         this.image = image;
     }
 
+    public String getImageCard() {
+        return imageCard;
+    }
+
+    public void setImageCard(String imageCard) {
+        this.imageCard = imageCard;
+    }
+
+    public String getImageThumbnail() {
+        return imageThumbnail;
+    }
+
+    public void setImageThumbnail(String imageThumbnail) {
+        this.imageThumbnail = imageThumbnail;
+    }
+
+    public String getImageHash() {
+        return imageHash;
+    }
+
+    public void setImageHash(String imageHash) {
+        this.imageHash = imageHash;
+    }
+
+    public ImageState getImageState() {
+        return imageState;
+    }
+
+    public void setImageState(ImageState imageState) {
+        this.imageState = imageState;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
     public List<RecipeIngredient> getRecipeIngredients() {
         return recipeIngredients;
     }
@@ -6,15 +6,21 @@ import jakarta.validation.constraints.Size;
 import org.hibernate.annotations.Nationalized;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
+import org.springframework.data.domain.Persistable;
 
 import java.math.BigDecimal;
 
 @Entity
 @Table(name = "Recipe_Ingredient")
-public class RecipeIngredient {
+public class RecipeIngredient implements Persistable<RecipeIngredientId> {
     @EmbeddedId
     private RecipeIngredientId id;
 
+    // The key is assigned by us, so tell Spring Data when a row is new.
+    // Otherwise save() falls back to merge(), which costs an extra SELECT per row and defeats batching.
+    @Transient
+    private boolean isNew = true;
+
     @MapsId("recipeId")
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @OnDelete(action = OnDeleteAction.CASCADE)
@@ -43,6 +49,17 @@ public class RecipeIngredient {
         this.id = id;
     }
 
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
     public Recipe getRecipe() {
         return recipe;
     }
@@ -0,0 +1,98 @@
+package ti.vives.be.apitizers.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.ColumnDefault;
+import org.springframework.data.domain.Persistable;
+
+// One row per distinct image content, shared by every recipe that uses the same photo
+@Entity
+@Table(name = "Stored_Image")
+public class StoredImage implements Persistable<String> {
+    // Hex encoded SHA-256 of the uploaded bytes
+    @Id
+    @Size(max = 64)
+    @Column(name = "hash", nullable = false, length = 64)
+    private String hash;
+
+    @Size(max = 1000)
+    @NotNull
+    @Column(name = "image_url", nullable = false, length = 1000)
+    private String imageUrl;
+
+    @Size(max = 1000)
+    @Column(name = "card_url", length = 1000)
+    private String cardUrl;
+
+    @Size(max = 1000)
+    @Column(name = "thumbnail_url", length = 1000)
+    private String thumbnailUrl;
+
+    // Number of recipes pointing at this image, the objects are deleted when it drops to zero
+    @NotNull
+    @ColumnDefault("0")
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount = 0;
+
+    // The key is assigned by us; persist (and fail on a duplicate hash) instead of merging over an existing row
+    @Transient
+    private boolean isNew = true;
+
+    @Override
+    public String getId() {
+        return hash;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    public String getCardUrl() {
+        return cardUrl;
+    }
+
+    public void setCardUrl(String cardUrl) {
+        this.cardUrl = cardUrl;
+    }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
+    public Integer getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(Integer refCount) {
+        this.refCount = refCount;
+    }
+
+}
@@ -0,0 +1,24 @@
+package ti.vives.be.apitizers.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ti.vives.be.apitizers.model.CacheChange;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface CacheChangeRepository extends JpaRepository<CacheChange, Long> {
+    List<CacheChange> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM CacheChange c")
+    Long findMaxId();
+
+    @Modifying
+    @Query("DELETE FROM CacheChange c WHERE c.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,10 @@
+package ti.vives.be.apitizers.repository;
+
+// Cheap aggregate that changes whenever a row is inserted, updated or deleted
+public interface CollectionVersion {
+    Long getCount();
+
+    Integer getMaxId();
+
+    Long getVersionSum();
+}
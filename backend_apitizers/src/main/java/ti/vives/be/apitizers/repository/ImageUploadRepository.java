@@ -0,0 +1,25 @@
+package ti.vives.be.apitizers.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ti.vives.be.apitizers.model.ImageUpload;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface ImageUploadRepository extends JpaRepository<ImageUpload, Integer> {
+    List<ImageUpload> findBySpoolOwnerAndNextAttemptAtLessThanEqual(String spoolOwner, Instant now);
+    List<ImageUpload> findBySpoolOwnerNotAndNextAttemptAtLessThan(String spoolOwner, Instant cutoff);
+    List<ImageUpload> findByRecipeId(Integer recipeId);
+    boolean existsByContentHash(String contentHash);
+
+    // Conditional on the previous owner, so when several replicas find the same orphan only one takes it
+    @Modifying
+    @Query("UPDATE ImageUpload u SET u.spoolOwner = :owner, u.nextAttemptAt = :now WHERE u.id = :id AND u.spoolOwner = :previousOwner")
+    int claim(@Param("id") Integer id, @Param("previousOwner") String previousOwner,
+              @Param("owner") String owner, @Param("now") Instant now);
+}
@@ -5,13 +5,37 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ti.vives.be.apitizers.dto.response.RecipeIngredientResponse;
 import ti.vives.be.apitizers.model.RecipeIngredient;
 import ti.vives.be.apitizers.model.RecipeIngredientId;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface RecipeIngredientRepository extends JpaRepository<RecipeIngredient, RecipeIngredientId> {
 
+    List<RecipeIngredient> findByIdRecipeId(Integer recipeId);
+
+    // Starts from the recipe so one statement also tells whether it exists: no rows means no recipe,
+    // a single row of nulls means a recipe without ingredients
+    @Query("SELECT new ti.vives.be.apitizers.dto.response.RecipeIngredientResponse(i.id, i.name, ri.quantity, ri.unit) " +
+            "FROM Recipe r LEFT JOIN r.recipeIngredients ri LEFT JOIN ri.ingredient i " +
+            "WHERE r.id = :recipeId ORDER BY i.name")
+    List<RecipeIngredientResponse> findResponsesByRecipeId(@Param("recipeId") Integer recipeId);
+
     @Modifying
     @Query("DELETE FROM RecipeIngredient ri WHERE ri.recipe.id = :recipeId")
     void deleteAllByRecipeId(@Param("recipeId") Integer recipeId);
+
+    // The recipe ingredients of a batch of recipes with their ingredient, for the multi-get
+    @Query("SELECT ri FROM RecipeIngredient ri JOIN FETCH ri.ingredient i WHERE ri.id.recipeId IN :recipeIds ORDER BY i.name")
+    List<RecipeIngredient> findWithIngredientByRecipeIdIn(@Param("recipeIds") Collection<Integer> recipeIds);
+
+    // Rows of [recipeId, ingredientName] for a batch of recipes
+    @Query("SELECT ri.id.recipeId, i.name FROM RecipeIngredient ri JOIN ri.ingredient i WHERE ri.id.recipeId IN :recipeIds")
+    List<Object[]> findIngredientNamesByRecipeIds(@Param("recipeIds") Collection<Integer> recipeIds);
+
+    @Query("SELECT ri.id.recipeId FROM RecipeIngredient ri WHERE ri.id.ingredientId = :ingredientId")
+    List<Integer> findRecipeIdsByIngredientId(@Param("ingredientId") Integer ingredientId);
 }
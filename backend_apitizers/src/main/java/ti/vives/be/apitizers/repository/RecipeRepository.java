@@ -1,9 +1,61 @@
 package ti.vives.be.apitizers.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ti.vives.be.apitizers.dto.response.RecipeSummaryResponse;
 import ti.vives.be.apitizers.model.Recipe;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
-public interface RecipeRepository extends JpaRepository<Recipe, Integer> {
+public interface RecipeRepository extends JpaRepository<Recipe, Integer>, RecipeRepositoryCustom {
+
+    // Keyset pagination: seek past the last seen id on the primary key index instead of using OFFSET.
+    // Projects straight into the summary DTO so the category is joined in the same statement
+    // and the description/instructions LOBs are never read. Lists show the thumbnail when there is one.
+    @Query("SELECT new ti.vives.be.apitizers.dto.response.RecipeSummaryResponse(" +
+            "r.id, r.name, r.isHealthy, r.isFavorite, c.name, COALESCE(r.imageThumbnail, r.image)) " +
+            "FROM Recipe r LEFT JOIN r.category c " +
+            "WHERE r.id > :afterId ORDER BY r.id ASC")
+    List<RecipeSummaryResponse> findSummaryPageAfter(@Param("afterId") Integer afterId, Limit limit);
+
+    @Query("SELECT new ti.vives.be.apitizers.dto.response.RecipeSummaryResponse(" +
+            "r.id, r.name, r.isHealthy, r.isFavorite, c.name, COALESCE(r.imageThumbnail, r.image)) " +
+            "FROM Recipe r LEFT JOIN r.category c " +
+            "WHERE r.isFavorite = true AND r.id > :afterId ORDER BY r.id ASC")
+    List<RecipeSummaryResponse> findFavoriteSummaryPageAfter(@Param("afterId") Integer afterId, Limit limit);
+
+    @Query("SELECT r FROM Recipe r LEFT JOIN FETCH r.category WHERE r.id > :afterId ORDER BY r.id ASC")
+    List<Recipe> findWithCategoryAfter(@Param("afterId") Integer afterId, Limit limit);
+
+    @Query("SELECT r FROM Recipe r LEFT JOIN FETCH r.category WHERE r.id IN :ids")
+    List<Recipe> findWithCategoryByIdIn(@Param("ids") Collection<Integer> ids);
+
+    // One recipe with its category and ingredients in a single statement (recipe columns repeat per ingredient row)
+    @Query("SELECT r FROM Recipe r LEFT JOIN FETCH r.category " +
+            "LEFT JOIN FETCH r.recipeIngredients ri LEFT JOIN FETCH ri.ingredient i WHERE r.id = :id ORDER BY i.name")
+    Optional<Recipe> findWithIngredientsById(@Param("id") Integer id);
+
+    // The whole catalog in id order as one forward-only cursor, for the export. Recipe ingredients are fetch-joined
+    // so every recipe arrives complete from this one result set: a second query on the same SQL Server connection
+    // while it is open would make the driver buffer all remaining rows in memory.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM Recipe r LEFT JOIN FETCH r.category " +
+            "LEFT JOIN FETCH r.recipeIngredients ri LEFT JOIN FETCH ri.ingredient ORDER BY r.id ASC")
+    Stream<Recipe> streamAllWithIngredients();
+
+    @Query("SELECT COUNT(x) AS count, MAX(x.id) AS maxId, SUM(x.version) AS versionSum FROM Recipe x")
+    CollectionVersion findCollectionVersion();
 }
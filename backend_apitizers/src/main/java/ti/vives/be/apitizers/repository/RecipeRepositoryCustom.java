@@ -0,0 +1,12 @@
+package ti.vives.be.apitizers.repository;
+
+import ti.vives.be.apitizers.dto.response.RecipeResponse;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface RecipeRepositoryCustom {
+
+    // Flip is_favorite and bump the version atomically, returning the updated detail (empty when the recipe does not exist)
+    Optional<RecipeResponse> toggleFavorite(Integer id, Instant now);
+}
@@ -0,0 +1,116 @@
+package ti.vives.be.apitizers.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.dialect.SQLServerDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+import ti.vives.be.apitizers.dto.response.RecipeResponse;
+import ti.vives.be.apitizers.model.Recipe;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public class RecipeRepositoryCustomImpl implements RecipeRepositoryCustom {
+
+    // The flags are bound as parameters: SQL Server's bit compares with 1/0, a BOOLEAN column (H2) only with true/false.
+    // Category has a version column too, so the right-hand sides are qualified.
+    private static final String SET_TOGGLE = "SET is_favorite = CASE WHEN r.is_favorite = :yes THEN :no ELSE :yes END, " +
+            "version = r.version + 1, updated_at = :now ";
+
+    // The columns of RecipeResponse, in constructor order
+    private static final String[] COLUMNS = {"id", "name", "description", "instructions", "is_healthy", "is_favorite",
+            "category_name", "image", "image_card", "image_thumbnail", "image_state", "version", "updated_at"};
+    private static final Class<?>[] TYPES = {Integer.class, String.class, String.class, String.class, Boolean.class, Boolean.class,
+            String.class, String.class, String.class, String.class, String.class, Integer.class, Instant.class};
+
+    // OUTPUT can read the joined category, so SQL Server returns the whole updated detail from the UPDATE itself
+    static final String SQL_SERVER_TOGGLE = "UPDATE r " + SET_TOGGLE + "OUTPUT " + selectList("inserted") +
+            " FROM Recipe r LEFT JOIN Category c ON c.id = r.category_id WHERE r.id = :id";
+
+    private static final String TOGGLE = "UPDATE Recipe r " + SET_TOGGLE + "WHERE r.id = :id";
+    private static final String READ_BACK = "SELECT " + selectList("r") +
+            " FROM Recipe r LEFT JOIN Category c ON c.id = r.category_id WHERE r.id = :id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // On SQL Server this is one statement: OUTPUT returns the new row without a second read, and the row lock
+    // taken by the UPDATE makes concurrent toggles serialize instead of overwriting each other. Other databases
+    // (the embedded one used by the tests) read the row back in the same transaction, still under that lock.
+    @Override
+    @Transactional
+    public Optional<RecipeResponse> toggleFavorite(Integer id, Instant now) {
+        if (isSqlServer()) {
+            NativeQuery<?> toggle = entityManager.createNativeQuery(SQL_SERVER_TOGGLE)
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedEntityClass(Recipe.class)
+                    .setParameter("yes", true)
+                    .setParameter("no", false)
+                    .setParameter("now", now)
+                    .setParameter("id", id);
+            return read(toggle);
+        }
+
+        // Declaring the touched table keeps Hibernate from invalidating every second-level cache region
+        int updated = entityManager.createNativeQuery(TOGGLE)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(Recipe.class)
+                .setParameter("yes", true)
+                .setParameter("no", false)
+                .setParameter("now", now)
+                .setParameter("id", id)
+                .executeUpdate();
+        if (updated == 0) {
+            return Optional.empty();
+        }
+        return read(entityManager.createNativeQuery(READ_BACK)
+                .unwrap(NativeQuery.class)
+                .setParameter("id", id));
+    }
+
+    private boolean isSqlServer() {
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof SQLServerDialect;
+    }
+
+    // Typed scalars, so bit/BOOLEAN, LOBs and timestamps come back the same way on every database
+    private static Optional<RecipeResponse> read(NativeQuery<?> query) {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            query.addScalar(COLUMNS[i], TYPES[i]);
+        }
+        List<?> rows = query.getResultList();
+        return rows.stream().findFirst().map(row -> toResponse((Object[]) row));
+    }
+
+    private static RecipeResponse toResponse(Object[] row) {
+        return new RecipeResponse(
+                (Integer) row[0],
+                (String) row[1],
+                (String) row[2],
+                (String) row[3],
+                (Boolean) row[4],
+                (Boolean) row[5],
+                (String) row[6],
+                (String) row[7],
+                (String) row[8],
+                (String) row[9],
+                (String) row[10],
+                (Integer) row[11],
+                (Instant) row[12]
+        );
+    }
+
+    private static String selectList(String recipeAlias) {
+        StringBuilder select = new StringBuilder();
+        for (String column : COLUMNS) {
+            if (!select.isEmpty()) {
+                select.append(", ");
+            }
+            select.append(column.equals("category_name") ? "c.name" : recipeAlias + "." + column).append(" AS ").append(column);
+        }
+        return select.toString();
+    }
+}
@@ -0,0 +1,22 @@
+package ti.vives.be.apitizers.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ti.vives.be.apitizers.model.StoredImage;
+
+@Repository
+public interface StoredImageRepository extends JpaRepository<StoredImage, String> {
+
+    // Single statement so concurrent saves of the same photo never lose a count
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE StoredImage s SET s.refCount = s.refCount + :delta WHERE s.hash = :hash")
+    int adjustRefCount(@Param("hash") String hash, @Param("delta") int delta);
+
+    // Only removes the row when no recipe picked it up again in the meantime
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM StoredImage s WHERE s.hash = :hash AND s.refCount <= 0")
+    int deleteIfUnused(@Param("hash") String hash);
+}
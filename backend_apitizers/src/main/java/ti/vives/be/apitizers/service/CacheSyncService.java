@@ -0,0 +1,217 @@
+package ti.vives.be.apitizers.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ti.vives.be.apitizers.model.CacheChange;
+import ti.vives.be.apitizers.model.CachedEntity;
+import ti.vives.be.apitizers.model.Category;
+import ti.vives.be.apitizers.model.Ingredient;
+import ti.vives.be.apitizers.repository.CacheChangeRepository;
+import ti.vives.be.apitizers.repository.RecipeIngredientRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Keeps the in-process caches of all replicas coherent through the database, without a broker:
+// every write appends a row to Cache_Change in its own transaction, every replica tails the table.
+@Service
+public class CacheSyncService {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheSyncService.class);
+
+    private static final int POLL_BATCH_SIZE = 500;
+    // SQL Server skips ahead up to 1000 identity values after a restart; such a jump is not a set of open transactions
+    private static final long MAX_TRACKED_GAP = 1000;
+
+    private final CacheChangeRepository cacheChangeRepository;
+    private final RecipeCacheService recipeCacheService;
+    private final RecipeSearchService recipeSearchService;
+    private final RecipeIngredientRepository recipeIngredientRepository;
+    private final Cache hibernateCache;
+    private final Duration maxLag;
+    private final Duration gapTimeout;
+    private final Duration retention;
+
+    // Random rather than the hostname, so two instances in one JVM (tests) are still told apart
+    private final String origin = UUID.randomUUID().toString();
+
+    private long lastSeenId = -1;
+    // Identity values are taken at insert but become visible at commit, so a lower id can show up after a higher one.
+    // Skipped ids are re-read until they appear or time out (rolled back transactions never appear).
+    private final NavigableMap<Long, Instant> gaps = new TreeMap<>();
+    private Instant lastSuccessfulPoll = Instant.now();
+    // A lock rather than synchronized: polls block on JDBC and may run on a virtual thread
+    private final Lock lock = new ReentrantLock();
+
+    public CacheSyncService(CacheChangeRepository cacheChangeRepository,
+                            RecipeCacheService recipeCacheService,
+                            RecipeSearchService recipeSearchService,
+                            RecipeIngredientRepository recipeIngredientRepository,
+                            EntityManagerFactory entityManagerFactory,
+                            @Value("${apitizers.cache-sync.max-lag}") Duration maxLag,
+                            @Value("${apitizers.cache-sync.gap-timeout}") Duration gapTimeout,
+                            @Value("${apitizers.cache-sync.retention}") Duration retention) {
+        this.cacheChangeRepository = cacheChangeRepository;
+        this.recipeCacheService = recipeCacheService;
+        this.recipeSearchService = recipeSearchService;
+        this.recipeIngredientRepository = recipeIngredientRepository;
+        this.hibernateCache = entityManagerFactory.getCache().unwrap(Cache.class);
+        this.maxLag = maxLag;
+        this.gapTimeout = gapTimeout;
+        this.retention = retention;
+    }
+
+    // Called inside the write transaction, so the log entry commits (or rolls back) together with the change
+
+    public void recipeChanged(Integer recipeId) {
+        record(CachedEntity.RECIPE, recipeId);
+        recipeCacheService.evictAfterCommit(recipeId);
+    }
+
+    public void categoryChanged(Integer categoryId) {
+        record(CachedEntity.CATEGORY, categoryId);
+        // Recipe details carry the category name
+        recipeCacheService.evictAllAfterCommit();
+    }
+
+    public void ingredientChanged(Integer ingredientId) {
+        record(CachedEntity.INGREDIENT, ingredientId);
+    }
+
+    // Nothing is cached before startup, so older entries can be skipped
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        lock.lock();
+        try {
+            lastSeenId = cacheChangeRepository.findMaxId();
+            lastSuccessfulPoll = Instant.now();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${apitizers.cache-sync.poll-interval}")
+    public void poll() {
+        lock.lock();
+        try {
+            pollChanges();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void pollChanges() {
+        if (lastSeenId < 0) {
+            return;
+        }
+        Instant now = Instant.now();
+        try {
+            long afterId = gaps.isEmpty() ? lastSeenId : Math.min(lastSeenId, gaps.firstKey() - 1);
+            List<CacheChange> changes;
+            do {
+                changes = cacheChangeRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(POLL_BATCH_SIZE));
+                apply(changes, now);
+                if (!changes.isEmpty()) {
+                    afterId = changes.get(changes.size() - 1).getId();
+                }
+            } while (changes.size() == POLL_BATCH_SIZE);
+
+            gaps.values().removeIf(skippedAt -> skippedAt.isBefore(now.minus(gapTimeout)));
+            lastSuccessfulPoll = now;
+        } catch (RuntimeException e) {
+            log.warn("Cache sync poll failed", e);
+            // Bound the staleness: once we cannot tell what changed for too long, drop everything
+            if (lastSuccessfulPoll.isBefore(now.minus(maxLag))) {
+                log.error("Cache sync lagging more than {}, clearing local caches", maxLag);
+                recipeCacheService.evictAll();
+                hibernateCache.evictAllRegions();
+                lastSuccessfulPoll = now;
+            }
+        }
+    }
+
+    // Entries older than the retention are no longer needed by any running replica
+    @Scheduled(fixedDelayString = "${apitizers.cache-sync.retention}")
+    @Transactional
+    public void prune() {
+        cacheChangeRepository.deleteCreatedBefore(Instant.now().minus(retention));
+    }
+
+    private void record(CachedEntity entityType, Integer entityId) {
+        CacheChange change = new CacheChange();
+        change.setEntityType(entityType);
+        change.setEntityId(entityId);
+        change.setOrigin(origin);
+        change.setCreatedAt(Instant.now());
+        cacheChangeRepository.save(change);
+    }
+
+    private void apply(List<CacheChange> changes, Instant now) {
+        Set<Integer> recipeIds = new LinkedHashSet<>();
+        boolean referenceDataChanged = false;
+        boolean categoryChanged = false;
+
+        for (CacheChange change : changes) {
+            long id = change.getId();
+            if (id <= lastSeenId) {
+                if (gaps.remove(id) == null) {
+                    continue; // Already applied
+                }
+            } else {
+                if (id - lastSeenId <= MAX_TRACKED_GAP) {
+                    for (long skipped = lastSeenId + 1; skipped < id; skipped++) {
+                        gaps.put(skipped, now);
+                    }
+                }
+                lastSeenId = id;
+            }
+            if (origin.equals(change.getOrigin())) {
+                continue; // Evicted locally after commit
+            }
+
+            switch (change.getEntityType()) {
+                case RECIPE -> recipeIds.add(change.getEntityId());
+                case CATEGORY -> {
+                    hibernateCache.evictEntityData(Category.class, change.getEntityId());
+                    referenceDataChanged = true;
+                    categoryChanged = true;
+                }
+                case INGREDIENT -> {
+                    hibernateCache.evictEntityData(Ingredient.class, change.getEntityId());
+                    referenceDataChanged = true;
+                    // A renamed ingredient changes what its recipes are found by
+                    recipeIds.addAll(recipeIngredientRepository.findRecipeIdsByIngredientId(change.getEntityId()));
+                }
+            }
+        }
+
+        // Query cache invalidation relies on table timestamps that only see local writes
+        if (referenceDataChanged) {
+            hibernateCache.evictQueryRegions();
+        }
+        if (categoryChanged) {
+            recipeCacheService.evictAll();
+        }
+        if (!recipeIds.isEmpty()) {
+            recipeIds.forEach(recipeCacheService::evict);
+            recipeSearchService.reindex(recipeIds);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import ti.vives.be.apitizers.exceptions.ResourceNotFoundException;
 import ti.vives.be.apitizers.dto.response.CategoryResponse;
 import ti.vives.be.apitizers.model.Category;
 import ti.vives.be.apitizers.repository.CategoryRepository;
+import ti.vives.be.apitizers.repository.CollectionVersion;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -24,6 +25,10 @@ public class CategoryService {
         return new CategoryResponse(category.getId(), category.getName(), category.getDescription());
     }
 
+    public CollectionVersion getCollectionVersion() {
+        return categoryRepository.findCollectionVersion();
+    }
+
     public List<CategoryResponse> getAllCategories() {
         return categoryRepository.findAll()
                 .stream()
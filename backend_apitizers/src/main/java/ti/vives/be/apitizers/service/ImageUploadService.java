@@ -0,0 +1,448 @@
+package ti.vives.be.apitizers.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import ti.vives.be.apitizers.model.ImageState;
+import ti.vives.be.apitizers.model.ImageUpload;
+import ti.vives.be.apitizers.model.Recipe;
+import ti.vives.be.apitizers.model.StoredImage;
+import ti.vives.be.apitizers.repository.ImageUploadRepository;
+import ti.vives.be.apitizers.repository.RecipeRepository;
+import ti.vives.be.apitizers.repository.StoredImageRepository;
+import ti.vives.be.apitizers.util.FirebaseStorageUtil;
+import ti.vives.be.apitizers.util.ImageProcessingUtil;
+import ti.vives.be.apitizers.util.ImageProcessingUtil.Variant;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+@Service
+public class ImageUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageUploadService.class);
+
+    private static final String FOLDER = "recipes";
+
+    private final ImageUploadRepository imageUploadRepository;
+    private final RecipeRepository recipeRepository;
+    private final StoredImageRepository storedImageRepository;
+    private final RecipeSearchService recipeSearchService;
+    private final CacheSyncService cacheSyncService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService imageUploadExecutor;
+    private final ExecutorService imageProcessingExecutor;
+    private final Path spoolDir;
+    private final String spoolOwner;
+    private final int maxAttempts;
+    private final Duration retryInterval;
+    private final Duration orphanTimeout;
+
+    // Uploads currently queued or running on this instance, so the retry sweep never submits one twice
+    private final Set<Integer> inFlight = ConcurrentHashMap.newKeySet();
+
+    public ImageUploadService(ImageUploadRepository imageUploadRepository,
+                              RecipeRepository recipeRepository,
+                              StoredImageRepository storedImageRepository,
+                              RecipeSearchService recipeSearchService,
+                              CacheSyncService cacheSyncService,
+                              TransactionTemplate transactionTemplate,
+                              @Qualifier("imageUploadExecutor") ExecutorService imageUploadExecutor,
+                              @Qualifier("imageProcessingExecutor") ExecutorService imageProcessingExecutor,
+                              @Value("${apitizers.images.spool-dir}") String spoolDir,
+                              @Value("${apitizers.images.max-attempts}") int maxAttempts,
+                              @Value("${apitizers.images.retry-interval}") Duration retryInterval,
+                              @Value("${apitizers.images.orphan-timeout}") Duration orphanTimeout) throws IOException {
+        this.imageUploadRepository = imageUploadRepository;
+        this.recipeRepository = recipeRepository;
+        this.storedImageRepository = storedImageRepository;
+        this.recipeSearchService = recipeSearchService;
+        this.cacheSyncService = cacheSyncService;
+        this.transactionTemplate = transactionTemplate;
+        this.imageUploadExecutor = imageUploadExecutor;
+        this.imageProcessingExecutor = imageProcessingExecutor;
+        this.spoolDir = Files.createDirectories(Path.of(spoolDir));
+        this.spoolOwner = InetAddress.getLocalHost().getHostName();
+        this.maxAttempts = maxAttempts;
+        this.retryInterval = retryInterval;
+        this.orphanTimeout = orphanTimeout;
+    }
+
+    // Called inside the recipe transaction: park the bytes on local disk and record the pending upload.
+    // The actual upload only starts once the recipe has been committed.
+    public void stage(Recipe recipe, MultipartFile imageFile) throws IOException {
+        Path spoolFile = spoolDir.resolve(UUID.randomUUID().toString());
+        String contentHash = spool(imageFile, spoolFile);
+
+        // A newer image replaces any upload for this recipe that has not finished yet
+        List<ImageUpload> superseded = imageUploadRepository.findByRecipeId(recipe.getId());
+        imageUploadRepository.deleteAll(superseded);
+
+        // Same photo as one we already store (e.g. re-saving from the edit screen): no upload at all
+        if (linkStoredImage(recipe, contentHash)) {
+            recipe.setImageState(ImageState.READY);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    deleteSpoolFile(spoolFile);
+                    if (status == STATUS_COMMITTED) {
+                        superseded.forEach(ImageUploadService.this::deleteSpoolFile);
+                    }
+                }
+            });
+            return;
+        }
+
+        ImageUpload upload = new ImageUpload();
+        upload.setRecipeId(recipe.getId());
+        upload.setSpoolPath(spoolFile.toString());
+        upload.setSpoolOwner(spoolOwner);
+        upload.setContentHash(contentHash);
+        upload.setContentType(imageFile.getContentType());
+        upload.setOriginalFilename(imageFile.getOriginalFilename());
+        upload.setNextAttemptAt(Instant.now());
+        ImageUpload savedUpload = imageUploadRepository.save(upload);
+
+        recipe.setImageState(ImageState.PENDING);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    superseded.forEach(ImageUploadService.this::deleteSpoolFile);
+                    submit(savedUpload.getId());
+                } else {
+                    deleteSpoolFile(savedUpload);
+                }
+            }
+        });
+    }
+
+    // Called when a recipe is deleted: drop its pending uploads and its reference to the stored image
+    public void removeRecipeImages(Recipe recipe) {
+        releaseStoredImage(recipe.getImageHash());
+
+        List<ImageUpload> pending = imageUploadRepository.findByRecipeId(recipe.getId());
+        if (pending.isEmpty()) {
+            return;
+        }
+        imageUploadRepository.deleteAll(pending);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pending.forEach(ImageUploadService.this::deleteSpoolFile);
+            }
+        });
+    }
+
+    // Picks up retries that are due, and after a restart everything that was still pending
+    @Scheduled(fixedDelayString = "${apitizers.images.retry-interval}")
+    public void retryDueUploads() {
+        Instant now = Instant.now();
+        for (ImageUpload upload : imageUploadRepository.findBySpoolOwnerAndNextAttemptAtLessThanEqual(spoolOwner, now)) {
+            submit(upload.getId());
+        }
+
+        // An owner that is still alive handles its uploads within one sweep of them being due. One that has been
+        // overdue for the orphan timeout belongs to an instance that is gone (a replaced pod gets a new hostname),
+        // so take it over: the upload finishes if the spool directory is shared, otherwise it fails on the missing file.
+        for (ImageUpload upload : imageUploadRepository.findBySpoolOwnerNotAndNextAttemptAtLessThan(spoolOwner, now.minus(orphanTimeout))) {
+            Integer claimed = transactionTemplate.execute(status ->
+                    imageUploadRepository.claim(upload.getId(), upload.getSpoolOwner(), spoolOwner, now));
+            if (claimed != null && claimed == 1) {
+                log.warn("Took over image upload {} for recipe {} from {}", upload.getId(), upload.getRecipeId(), upload.getSpoolOwner());
+                submit(upload.getId());
+            }
+        }
+    }
+
+    private void submit(Integer uploadId) {
+        if (!inFlight.add(uploadId)) {
+            return;
+        }
+        try {
+            imageUploadExecutor.execute(() -> {
+                try {
+                    process(uploadId);
+                } finally {
+                    inFlight.remove(uploadId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Queue is full, the next sweep will try again
+            inFlight.remove(uploadId);
+        }
+    }
+
+    private void process(Integer uploadId) {
+        ImageUpload upload = imageUploadRepository.findById(uploadId).orElse(null);
+        if (upload == null) {
+            return; // Superseded or the recipe was deleted
+        }
+
+        Path spoolFile = Path.of(upload.getSpoolPath());
+        if (!Files.exists(spoolFile)) {
+            transactionTemplate.executeWithoutResult(status -> fail(uploadId, "spool file is missing"));
+            return;
+        }
+
+        Map<Variant, String> imageUrls = null;
+        try {
+            // Another recipe may have stored the same photo since this upload was staged
+            if (!storedImageRepository.existsById(upload.getContentHash())) {
+                imageUrls = uploadVariants(upload, spoolFile);
+            }
+        } catch (RejectedExecutionException e) {
+            // Processing pool is saturated: nothing was tried, so this does not count as an attempt
+            transactionTemplate.executeWithoutResult(status -> postpone(uploadId));
+            return;
+        } catch (IOException | RuntimeException | ExecutionException e) {
+            transactionTemplate.executeWithoutResult(status -> retryOrFail(uploadId, e.getMessage()));
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return; // Shutting down, the sweep picks it up after the restart
+        }
+        Map<Variant, String> uploadedUrls = imageUrls;
+        transactionTemplate.executeWithoutResult(status -> complete(uploadId, upload.getContentHash(), uploadedUrls));
+    }
+
+    private Map<Variant, String> uploadVariants(ImageUpload upload, Path spoolFile)
+            throws IOException, ExecutionException, InterruptedException {
+        // Decoding and resizing is CPU bound, so it runs on its own small pool
+        Map<Variant, byte[]> variants = imageProcessingExecutor
+                .submit(() -> ImageProcessingUtil.createVariants(spoolFile))
+                .get();
+
+        // Objects are named after the content hash, so identical photos map onto the same objects
+        Map<Variant, String> imageUrls = new EnumMap<>(Variant.class);
+        if (variants == null) {
+            // Not a format we can decode, keep the original as the only image
+            try (InputStream content = Files.newInputStream(spoolFile)) {
+                imageUrls.put(Variant.FULL, FirebaseStorageUtil.uploadFileIfAbsent(content, upload.getContentType(),
+                        originalObjectName(upload.getContentHash())));
+            }
+            return imageUrls;
+        }
+
+        for (Map.Entry<Variant, byte[]> variant : variants.entrySet()) {
+            try (InputStream content = new ByteArrayInputStream(variant.getValue())) {
+                imageUrls.put(variant.getKey(), FirebaseStorageUtil.uploadFileIfAbsent(content, "image/jpeg",
+                        variantObjectName(upload.getContentHash(), variant.getKey())));
+            }
+        }
+        return imageUrls;
+    }
+
+    // imageUrls is null when the content was already stored and nothing had to be uploaded
+    private void complete(Integer uploadId, String contentHash, Map<Variant, String> imageUrls) {
+        ImageUpload upload = imageUploadRepository.findById(uploadId).orElse(null);
+        if (upload == null) {
+            // Superseded while uploading, keep the newer image and drop what this upload wrote
+            discardUploadedObjects(contentHash, imageUrls);
+            return;
+        }
+        Recipe recipe = recipeRepository.findById(upload.getRecipeId()).orElse(null);
+        if (recipe == null) {
+            finish(upload);
+            discardUploadedObjects(contentHash, imageUrls);
+            return;
+        }
+
+        if (!linkStoredImage(recipe, upload.getContentHash())) {
+            if (imageUrls == null) {
+                return; // The stored image was released in the meantime, the next sweep uploads it again
+            }
+            StoredImage storedImage = new StoredImage();
+            storedImage.setHash(upload.getContentHash());
+            storedImage.setImageUrl(imageUrls.get(Variant.FULL));
+            storedImage.setCardUrl(imageUrls.get(Variant.CARD));
+            storedImage.setThumbnailUrl(imageUrls.get(Variant.THUMBNAIL));
+            storedImage.setRefCount(1);
+            storedImageRepository.save(storedImage);
+            assignImage(recipe, storedImage);
+        }
+        recipe.setImageState(ImageState.READY);
+        recipeSearchService.updateImageAfterCommit(recipe.getId(),
+                recipe.getImageThumbnail() != null ? recipe.getImageThumbnail() : recipe.getImage());
+        cacheSyncService.recipeChanged(recipe.getId());
+        finish(upload);
+    }
+
+    // Point the recipe at an already stored image, taking a reference on it. False when the hash is not stored.
+    private boolean linkStoredImage(Recipe recipe, String contentHash) {
+        StoredImage storedImage = storedImageRepository.findById(contentHash).orElse(null);
+        if (storedImage == null) {
+            return false;
+        }
+        if (!contentHash.equals(recipe.getImageHash())) {
+            if (storedImageRepository.adjustRefCount(contentHash, 1) == 0) {
+                return false; // Deleted by a concurrent release
+            }
+        }
+        assignImage(recipe, storedImage);
+        return true;
+    }
+
+    private void assignImage(Recipe recipe, StoredImage storedImage) {
+        String previousHash = recipe.getImageHash();
+        recipe.setImage(storedImage.getImageUrl());
+        recipe.setImageCard(storedImage.getCardUrl());
+        recipe.setImageThumbnail(storedImage.getThumbnailUrl());
+        recipe.setImageHash(storedImage.getHash());
+        if (previousHash != null && !previousHash.equals(storedImage.getHash())) {
+            releaseStoredImage(previousHash);
+        }
+    }
+
+    // Drop one reference; the last one removes the row and, after commit, the objects in storage
+    private void releaseStoredImage(String contentHash) {
+        if (contentHash == null) {
+            return;
+        }
+        storedImageRepository.adjustRefCount(contentHash, -1);
+        if (storedImageRepository.deleteIfUnused(contentHash) == 0) {
+            return;
+        }
+        deleteObjectsAfterCommit(contentHash);
+    }
+
+    // Objects written for an upload nobody will use. They are shared by content hash, so they stay
+    // when a stored image or another pending upload of the same photo still needs them.
+    private void discardUploadedObjects(String contentHash, Map<Variant, String> imageUrls) {
+        if (imageUrls == null
+                || storedImageRepository.existsById(contentHash)
+                || imageUploadRepository.existsByContentHash(contentHash)) {
+            return;
+        }
+        deleteObjectsAfterCommit(contentHash);
+    }
+
+    private void deleteObjectsAfterCommit(String contentHash) {
+        List<String> objectNames = new ArrayList<>();
+        objectNames.add(originalObjectName(contentHash));
+        for (Variant variant : Variant.values()) {
+            objectNames.add(variantObjectName(contentHash, variant));
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    FirebaseStorageUtil.deleteFiles(objectNames);
+                } catch (RuntimeException e) {
+                    log.warn("Could not delete stored image {}", contentHash, e);
+                }
+            }
+        });
+    }
+
+    private void retryOrFail(Integer uploadId, String reason) {
+        ImageUpload upload = imageUploadRepository.findById(uploadId).orElse(null);
+        if (upload == null) {
+            return;
+        }
+        int attempts = upload.getAttempts() + 1;
+        if (attempts >= maxAttempts) {
+            fail(uploadId, reason);
+            return;
+        }
+        // Exponential backoff: interval, 2x interval, 4x interval, ...
+        upload.setAttempts(attempts);
+        upload.setNextAttemptAt(Instant.now().plus(retryInterval.multipliedBy(1L << (attempts - 1))));
+        log.warn("Image upload {} failed (attempt {}), retrying: {}", uploadId, attempts, reason);
+    }
+
+    private void postpone(Integer uploadId) {
+        ImageUpload upload = imageUploadRepository.findById(uploadId).orElse(null);
+        if (upload == null) {
+            return;
+        }
+        upload.setNextAttemptAt(Instant.now().plus(retryInterval));
+        log.debug("Image processing is busy, postponed image upload {}", uploadId);
+    }
+
+    private void fail(Integer uploadId, String reason) {
+        ImageUpload upload = imageUploadRepository.findById(uploadId).orElse(null);
+        if (upload == null) {
+            return;
+        }
+        recipeRepository.findById(upload.getRecipeId())
+                .ifPresent(recipe -> recipe.setImageState(ImageState.FAILED));
+        cacheSyncService.recipeChanged(upload.getRecipeId());
+        log.error("Image upload {} for recipe {} failed: {}", uploadId, upload.getRecipeId(), reason);
+        finish(upload);
+    }
+
+    private void finish(ImageUpload upload) {
+        imageUploadRepository.delete(upload);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deleteSpoolFile(upload);
+            }
+        });
+    }
+
+    // Copy the upload to the spool file and hash it in the same pass
+    private static String spool(MultipartFile imageFile, Path spoolFile) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream content = new DigestInputStream(imageFile.getInputStream(), digest);
+             OutputStream spooled = Files.newOutputStream(spoolFile)) {
+            content.transferTo(spooled);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String originalObjectName(String contentHash) {
+        return FOLDER + "/" + contentHash;
+    }
+
+    private static String variantObjectName(String contentHash, Variant variant) {
+        return FOLDER + "/" + contentHash + "_" + variant.getSuffix() + ".jpg";
+    }
+
+    private void deleteSpoolFile(ImageUpload upload) {
+        deleteSpoolFile(Path.of(upload.getSpoolPath()));
+    }
+
+    private void deleteSpoolFile(Path spoolFile) {
+        try {
+            Files.deleteIfExists(spoolFile);
+        } catch (IOException e) {
+            log.warn("Could not delete spool file {}", spoolFile, e);
+        }
+    }
+}
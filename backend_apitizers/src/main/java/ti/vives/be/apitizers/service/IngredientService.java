@@ -1,23 +1,42 @@
 package ti.vives.be.apitizers.service;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ti.vives.be.apitizers.dto.request.IngredientRequest;
 import ti.vives.be.apitizers.dto.response.IngredientResponse;
 import ti.vives.be.apitizers.exceptions.BadRequestException;
 import ti.vives.be.apitizers.exceptions.ResourceNotFoundException;
 import ti.vives.be.apitizers.model.Ingredient;
+import ti.vives.be.apitizers.repository.CollectionVersion;
 import ti.vives.be.apitizers.repository.IngredientRepository;
+import ti.vives.be.apitizers.repository.RecipeIngredientRepository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
 public class IngredientService {
 
     private final IngredientRepository ingredientRepository;
+    private final RecipeIngredientRepository recipeIngredientRepository;
+    private final RecipeSearchService recipeSearchService;
+    private final CacheSyncService cacheSyncService;
 
-    public IngredientService(IngredientRepository ingredientRepository) {
+    public IngredientService(IngredientRepository ingredientRepository,
+                             RecipeIngredientRepository recipeIngredientRepository,
+                             RecipeSearchService recipeSearchService,
+                             CacheSyncService cacheSyncService) {
         this.ingredientRepository = ingredientRepository;
+        this.recipeIngredientRepository = recipeIngredientRepository;
+        this.recipeSearchService = recipeSearchService;
+        this.cacheSyncService = cacheSyncService;
+    }
+
+    public CollectionVersion getCollectionVersion() {
+        return ingredientRepository.findCollectionVersion();
     }
 
     public List<IngredientResponse> getAllIngredients() {
@@ -27,12 +46,40 @@ public class IngredientService {
                 .collect(Collectors.toList());
     }
 
+    // Resolve a set of ingredient names with a single lookup, creating the missing ones.
+    // Keys are case-insensitive to match the database collation used by the unique name index.
+    @Transactional
+    public Map<String, Ingredient> resolveByNames(Collection<String> names) {
+        Map<String, Ingredient> resolved = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (names.isEmpty()) {
+            return resolved;
+        }
+        for (Ingredient ingredient : ingredientRepository.findByNameIn(names)) {
+            resolved.put(ingredient.getName(), ingredient);
+        }
+
+        Map<String, Ingredient> missing = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (String name : names) {
+            if (!resolved.containsKey(name) && !missing.containsKey(name)) {
+                Ingredient newIngredient = new Ingredient();
+                newIngredient.setName(name);
+                missing.put(name, newIngredient);
+            }
+        }
+        for (Ingredient saved : ingredientRepository.saveAll(missing.values())) {
+            resolved.put(saved.getName(), saved);
+            cacheSyncService.ingredientChanged(saved.getId());
+        }
+        return resolved;
+    }
+
     public IngredientResponse getIngredientById(Integer id) {
         Ingredient ingredient = ingredientRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(id, "Ingredient"));
         return new IngredientResponse(ingredient.getId(), ingredient.getName());
     }
 
+    @Transactional
     public IngredientResponse createIngredient(IngredientRequest ingredientRequest) {
         if (ingredientRepository.existsByName(ingredientRequest.getName())) {
             throw new BadRequestException("Ingredient with name '" + ingredientRequest.getName() + "' already exists.");
@@ -40,24 +87,34 @@ public class IngredientService {
         Ingredient ingredient = new Ingredient();
         ingredient.setName(ingredientRequest.getName());
         Ingredient savedIngredient = ingredientRepository.save(ingredient);
+        cacheSyncService.ingredientChanged(savedIngredient.getId());
         return new IngredientResponse(savedIngredient.getId(), savedIngredient.getName());
     }
 
+    @Transactional
     public void deleteIngredient(Integer id) {
         if (!ingredientRepository.existsById(id)) {
             throw new ResourceNotFoundException(id, "Ingredient");
         }
         ingredientRepository.deleteById(id);
+        cacheSyncService.ingredientChanged(id);
     }
 
+    @Transactional
     public IngredientResponse updateIngredient(Integer id, IngredientRequest ingredientRequest) {
         Ingredient ingredient = ingredientRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(id, "Ingredient"));
         if (!ingredient.getName().equals(ingredientRequest.getName()) && ingredientRepository.existsByName(ingredientRequest.getName())) {
             throw new BadRequestException("Ingredient with name '" + ingredientRequest.getName() + "' already exists.");
         }
+        boolean renamed = !ingredient.getName().equals(ingredientRequest.getName());
         ingredient.setName(ingredientRequest.getName());
         Ingredient updatedIngredient = ingredientRepository.save(ingredient);
+        if (renamed) {
+            // Recipes are searchable by their ingredient names; other replicas reindex them from the change log
+            recipeSearchService.reindexAfterCommit(recipeIngredientRepository.findRecipeIdsByIngredientId(id));
+        }
+        cacheSyncService.ingredientChanged(id);
         return new IngredientResponse(updatedIngredient.getId(), updatedIngredient.getName());
     }
 }
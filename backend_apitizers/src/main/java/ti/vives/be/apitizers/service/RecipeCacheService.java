@@ -0,0 +1,119 @@
+package ti.vives.be.apitizers.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ti.vives.be.apitizers.dto.response.RecipeResponse;
+import ti.vives.be.apitizers.repository.CollectionVersion;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+@Service
+public class RecipeCacheService implements MeterBinder {
+
+    // Caffeine's W-TinyLFU policy keeps the popular recipes even when a crawl touches every id once
+    private final AsyncCache<Integer, RecipeResponse> asyncRecipes;
+    private final Cache<Integer, RecipeResponse> recipes;
+
+    // Loads run on their own virtual thread instead of inside the map's compute (a synchronized block),
+    // where blocking on JDBC would pin the carrier thread of a virtual request thread
+    private final Executor loadExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Recipe table aggregate behind the listing ETag. Every eviction bumps the generation, so a version
+    // loaded before a change committed is never served after it.
+    private final AtomicLong collectionGeneration = new AtomicLong();
+    private volatile CachedCollectionVersion collectionVersion;
+
+    public RecipeCacheService(@Value("${apitizers.recipe-cache.maximum-size}") long maximumSize) {
+        this.asyncRecipes = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .buildAsync();
+        this.recipes = asyncRecipes.synchronous();
+    }
+
+    // The loader runs at most once per id at a time and on another thread, so it must open its own
+    // transaction. Exceptions (e.g. not found) are rethrown to every waiting caller and not cached.
+    public RecipeResponse get(Integer recipeId, Function<Integer, RecipeResponse> loader) {
+        try {
+            return asyncRecipes.get(recipeId, (id, executor) -> CompletableFuture.supplyAsync(() -> loader.apply(id), loadExecutor))
+                    .join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public RecipeResponse getIfPresent(Integer recipeId) {
+        return recipes.getIfPresent(recipeId);
+    }
+
+    // Loaded at most once between two recipe changes, local or from another replica
+    public CollectionVersion getCollectionVersion(Supplier<CollectionVersion> loader) {
+        long generation = collectionGeneration.get();
+        CachedCollectionVersion cached = collectionVersion;
+        if (cached != null && cached.generation() == generation) {
+            return cached.version();
+        }
+        CollectionVersion version = loader.get();
+        collectionVersion = new CachedCollectionVersion(generation, version);
+        return version;
+    }
+
+    public void evict(Integer recipeId) {
+        recipes.invalidate(recipeId);
+        collectionGeneration.incrementAndGet();
+    }
+
+    public void evictAll() {
+        recipes.invalidateAll();
+        collectionGeneration.incrementAndGet();
+    }
+
+    // Evict once the change is visible to other transactions. An invalidation also drops a load of the
+    // same id that is still running, so a load that read the old row cannot populate the cache afterwards.
+    public void evictAfterCommit(Integer recipeId) {
+        afterCommit(() -> evict(recipeId));
+    }
+
+    public void evictAllAfterCommit() {
+        afterCommit(this::evictAll);
+    }
+
+    // Picked up by Spring Boot like any MeterBinder bean: exports cache.gets/puts/evictions/size with cache="recipes"
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, recipes, "recipes");
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private record CachedCollectionVersion(long generation, CollectionVersion version) {
+    }
+}
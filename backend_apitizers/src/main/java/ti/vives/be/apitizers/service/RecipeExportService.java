@@ -0,0 +1,155 @@
+package ti.vives.be.apitizers.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ti.vives.be.apitizers.dto.response.RecipeExportResponse;
+import ti.vives.be.apitizers.exceptions.BadRequestException;
+import ti.vives.be.apitizers.model.Recipe;
+import ti.vives.be.apitizers.model.RecipeIngredient;
+import ti.vives.be.apitizers.repository.RecipeRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+// Writes the whole catalog, one recipe at a time, from a single database cursor. Every recipe is detached
+// once written, so the persistence context (and the heap) only ever holds one recipe and the reference data.
+@Service
+public class RecipeExportService {
+
+    public enum Format {
+        NDJSON, CSV;
+
+        public static Format parse(String value) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new BadRequestException("Unsupported export format '" + value + "', use ndjson or csv.");
+        }
+    }
+
+    private static final String CSV_HEADER = "id,name,description,instructions,is_healthy,is_favorite,category,image,version,updated_at,ingredients";
+
+    private final RecipeRepository recipeRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectWriter lineWriter;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public RecipeExportService(RecipeRepository recipeRepository,
+                               PlatformTransactionManager transactionManager,
+                               ObjectMapper objectMapper) {
+        this.recipeRepository = recipeRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.lineWriter = objectMapper.writer();
+    }
+
+    // Runs on the response thread; the stream has to be consumed (and closed) inside the transaction
+    public void export(Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Recipe> recipes = recipeRepository.streamAllWithIngredients()) {
+                    recipes.forEach(recipe -> {
+                        write(format, recipe, writer);
+                        entityManager.detach(recipe);
+                    });
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Usually the client went away
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void write(Format format, Recipe recipe, Writer writer) {
+        try {
+            if (format == Format.NDJSON) {
+                writer.write(lineWriter.writeValueAsString(toResponse(recipe)));
+            } else {
+                writeCsv(recipe, writer);
+            }
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static RecipeExportResponse toResponse(Recipe recipe) {
+        return new RecipeExportResponse(
+                recipe.getId(),
+                recipe.getName(),
+                recipe.getDescription(),
+                recipe.getInstructions(),
+                recipe.getIsHealthy(),
+                recipe.getIsFavorite(),
+                recipe.getCategory() != null ? recipe.getCategory().getName() : null,
+                recipe.getImage(),
+                recipe.getVersion(),
+                recipe.getUpdatedAt(),
+                RecipeService.mapIngredients(recipe));
+    }
+
+    // Ingredients go in one column as "name=quantity unit" pairs separated by "; "
+    private static void writeCsv(Recipe recipe, Writer writer) throws IOException {
+        StringBuilder ingredients = new StringBuilder();
+        for (RecipeIngredient recipeIngredient : recipe.getRecipeIngredients()) {
+            if (!ingredients.isEmpty()) {
+                ingredients.append("; ");
+            }
+            ingredients.append(recipeIngredient.getIngredient().getName()).append('=').append(plain(recipeIngredient.getQuantity()));
+            if (recipeIngredient.getUnit() != null) {
+                ingredients.append(' ').append(recipeIngredient.getUnit());
+            }
+        }
+
+        writer.write(String.join(",",
+                String.valueOf(recipe.getId()),
+                csv(recipe.getName()),
+                csv(recipe.getDescription()),
+                csv(recipe.getInstructions()),
+                csv(recipe.getIsHealthy()),
+                csv(recipe.getIsFavorite()),
+                csv(recipe.getCategory() != null ? recipe.getCategory().getName() : null),
+                csv(recipe.getImage()),
+                csv(recipe.getVersion()),
+                csv(recipe.getUpdatedAt()),
+                csv(ingredients.toString())));
+    }
+
+    private static String plain(BigDecimal quantity) {
+        return quantity != null ? quantity.stripTrailingZeros().toPlainString() : "";
+    }
+
+    // RFC 4180: quote fields with a separator, quote or line break, and double the quotes inside
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,320 @@
+package ti.vives.be.apitizers.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ti.vives.be.apitizers.dto.request.RecipeIngredientRequest;
+import ti.vives.be.apitizers.dto.request.RecipeRequest;
+import ti.vives.be.apitizers.dto.response.ImportErrorResponse;
+import ti.vives.be.apitizers.dto.response.ImportProgressResponse;
+import ti.vives.be.apitizers.model.Category;
+import ti.vives.be.apitizers.model.Ingredient;
+import ti.vives.be.apitizers.model.Recipe;
+import ti.vives.be.apitizers.model.RecipeIngredient;
+import ti.vives.be.apitizers.model.RecipeIngredientId;
+import ti.vives.be.apitizers.repository.CategoryRepository;
+import ti.vives.be.apitizers.repository.RecipeIngredientRepository;
+import ti.vives.be.apitizers.repository.RecipeRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Bulk import of NDJSON recipes (one RecipeRequest per line). Lines are read and parsed one at a time and
+// written in chunks, one transaction per chunk, so memory use does not depend on the size of the upload.
+// Lines are framed here rather than by one Jackson parser over the whole stream, so a malformed line is
+// reported and skipped instead of ending the import; each line is parsed straight from the line buffer.
+// The response is NDJSON as well: an error line per rejected recipe and a progress line per committed chunk.
+@Service
+public class RecipeImportService {
+
+    // Longer lines are reported and skipped instead of buffered
+    static final int MAX_LINE_LENGTH = 1024 * 1024;
+
+    private final CategoryRepository categoryRepository;
+    private final RecipeRepository recipeRepository;
+    private final RecipeIngredientRepository recipeIngredientRepository;
+    private final IngredientService ingredientService;
+    private final RecipeSearchService recipeSearchService;
+    private final CacheSyncService cacheSyncService;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final ObjectReader recipeReader;
+    private final ObjectWriter eventWriter;
+    private final int chunkSize;
+
+    public RecipeImportService(CategoryRepository categoryRepository,
+                               RecipeRepository recipeRepository,
+                               RecipeIngredientRepository recipeIngredientRepository,
+                               IngredientService ingredientService,
+                               RecipeSearchService recipeSearchService,
+                               CacheSyncService cacheSyncService,
+                               TransactionTemplate transactionTemplate,
+                               EntityManager entityManager,
+                               Validator validator,
+                               ObjectMapper objectMapper,
+                               @Value("${apitizers.import.chunk-size}") int chunkSize) {
+        this.categoryRepository = categoryRepository;
+        this.recipeRepository = recipeRepository;
+        this.recipeIngredientRepository = recipeIngredientRepository;
+        this.ingredientService = ingredientService;
+        this.recipeSearchService = recipeSearchService;
+        this.cacheSyncService = cacheSyncService;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.validator = validator;
+        this.recipeReader = objectMapper.readerFor(RecipeRequest.class);
+        this.eventWriter = objectMapper.writer();
+        this.chunkSize = chunkSize;
+    }
+
+    public void importRecipes(InputStream in, OutputStream out) throws IOException {
+        // Few and small, and a detached Category is all a new recipe (and the search index) needs
+        Map<Integer, Category> categories = new HashMap<>();
+        for (Category category : categoryRepository.findAll()) {
+            categories.put(category.getId(), category);
+        }
+
+        LineReader reader = new LineReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        List<ImportLine> chunk = new ArrayList<>(chunkSize);
+        long lines = 0;
+        long imported = 0;
+        long failed = 0;
+
+        while (reader.next()) {
+            lines++;
+            if (reader.isTooLong()) {
+                failed++;
+                writeEvent(out, new ImportErrorResponse(lines, "Line longer than " + MAX_LINE_LENGTH + " characters"));
+                continue;
+            }
+            if (reader.isBlank()) {
+                continue;
+            }
+
+            RecipeRequest request;
+            try {
+                request = reader.parse(recipeReader);
+            } catch (JsonProcessingException e) {
+                failed++;
+                writeEvent(out, new ImportErrorResponse(lines, "Invalid JSON: " + e.getOriginalMessage()));
+                continue;
+            }
+            String error = validate(request, categories);
+            if (error != null) {
+                failed++;
+                writeEvent(out, new ImportErrorResponse(lines, error));
+                continue;
+            }
+
+            chunk.add(new ImportLine(lines, request));
+            if (chunk.size() == chunkSize) {
+                int written = writeChunk(chunk, categories, out);
+                imported += written;
+                failed += chunk.size() - written;
+                chunk.clear();
+                writeEvent(out, new ImportProgressResponse(lines, imported, failed, false));
+                out.flush();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            int written = writeChunk(chunk, categories, out);
+            imported += written;
+            failed += chunk.size() - written;
+        }
+        writeEvent(out, new ImportProgressResponse(lines, imported, failed, true));
+        out.flush();
+    }
+
+    private String validate(RecipeRequest request, Map<Integer, Category> categories) {
+        Set<ConstraintViolation<RecipeRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+        if (!categories.containsKey(request.getCategoryId())) {
+            return "Category with id " + request.getCategoryId() + " not found";
+        }
+        if (request.getRecipeIngredients() != null) {
+            for (RecipeIngredientRequest ingredient : request.getRecipeIngredients()) {
+                if (ingredient.getIngredientName() == null || ingredient.getIngredientName().isBlank()) {
+                    return "recipeIngredients: ingredientName is required";
+                }
+                if (ingredient.getQuantity() == null) {
+                    return "recipeIngredients: quantity is required for " + ingredient.getIngredientName();
+                }
+            }
+        }
+        return null;
+    }
+
+    // Returns the number of recipes written: all of the chunk, or none when the transaction fails
+    private int writeChunk(List<ImportLine> chunk, Map<Integer, Category> categories, OutputStream out) throws IOException {
+        try {
+            transactionTemplate.executeWithoutResult(status -> persist(chunk, categories));
+            return chunk.size();
+        } catch (RuntimeException e) {
+            for (ImportLine line : chunk) {
+                writeEvent(out, new ImportErrorResponse(line.number(), "Chunk not imported: " + e.getMessage()));
+            }
+            return 0;
+        } finally {
+            // Through HTTP every chunk joins the request's EntityManager (open-in-view), which only ends with
+            // the request; without this each imported recipe would stay managed until the upload is done
+            entityManager.clear();
+        }
+    }
+
+    private void persist(List<ImportLine> chunk, Map<Integer, Category> categories) {
+        // One lookup for every ingredient name in the chunk, missing ones are created
+        Set<String> names = new LinkedHashSet<>();
+        for (ImportLine line : chunk) {
+            for (RecipeIngredientRequest ingredient : ingredientsOf(line.request())) {
+                names.add(ingredient.getIngredientName());
+            }
+        }
+        Map<String, Ingredient> ingredients = ingredientService.resolveByNames(names);
+
+        List<Recipe> recipes = new ArrayList<>(chunk.size());
+        for (ImportLine line : chunk) {
+            RecipeRequest request = line.request();
+            Recipe recipe = new Recipe();
+            recipe.setName(request.getName());
+            recipe.setDescription(request.getDescription());
+            recipe.setInstructions(request.getInstructions());
+            recipe.setIsHealthy(request.getIsHealthy());
+            recipe.setIsFavorite(request.getIsFavorite());
+            recipe.setCategory(categories.get(request.getCategoryId()));
+            recipes.add(recipe);
+        }
+        recipes = recipeRepository.saveAll(recipes);
+
+        // Written as JDBC batches on flush
+        List<RecipeIngredient> recipeIngredients = new ArrayList<>();
+        for (int i = 0; i < recipes.size(); i++) {
+            Recipe recipe = recipes.get(i);
+            // Keyed by ingredient id so a duplicated ingredient keeps its last quantity instead of clashing on the key
+            Map<Integer, RecipeIngredient> rows = new LinkedHashMap<>();
+            for (RecipeIngredientRequest request : ingredientsOf(chunk.get(i).request())) {
+                Ingredient ingredient = ingredients.get(request.getIngredientName());
+
+                RecipeIngredientId id = new RecipeIngredientId();
+                id.setRecipeId(recipe.getId());
+                id.setIngredientId(ingredient.getId());
+
+                RecipeIngredient recipeIngredient = new RecipeIngredient();
+                recipeIngredient.setId(id);
+                recipeIngredient.setRecipe(recipe);
+                recipeIngredient.setIngredient(ingredient);
+                recipeIngredient.setQuantity(request.getQuantity());
+                recipeIngredient.setUnit(request.getUnit());
+                rows.put(ingredient.getId(), recipeIngredient);
+            }
+            recipeIngredients.addAll(rows.values());
+
+            recipeSearchService.indexAfterCommit(recipe, ingredientsOf(chunk.get(i).request()).stream()
+                    .map(RecipeIngredientRequest::getIngredientName)
+                    .toList());
+            cacheSyncService.recipeChanged(recipe.getId());
+        }
+        recipeIngredientRepository.saveAll(recipeIngredients);
+    }
+
+    private void writeEvent(OutputStream out, Object event) throws IOException {
+        out.write(eventWriter.writeValueAsBytes(event));
+        out.write('\n');
+    }
+
+    private static List<RecipeIngredientRequest> ingredientsOf(RecipeRequest request) {
+        return request.getRecipeIngredients() != null ? request.getRecipeIngredients() : List.of();
+    }
+
+    private record ImportLine(long number, RecipeRequest request) {
+    }
+
+    // Like BufferedReader.readLine, but never holds more than MAX_LINE_LENGTH characters of a line,
+    // and hands the line to Jackson as the reused char buffer instead of a new String
+    private static class LineReader {
+        private final BufferedReader reader;
+        private char[] buffer = new char[8192];
+        private int length;
+        private boolean tooLong;
+
+        LineReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        boolean next() throws IOException {
+            length = 0;
+            tooLong = false;
+            int c = reader.read();
+            if (c == -1) {
+                return false;
+            }
+            while (c != -1 && c != '\n') {
+                if (length < MAX_LINE_LENGTH) {
+                    if (length == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, MAX_LINE_LENGTH));
+                    }
+                    buffer[length++] = (char) c;
+                } else {
+                    tooLong = true;
+                }
+                c = reader.read();
+            }
+            if (length > 0 && buffer[length - 1] == '\r') {
+                length--;
+            }
+            return true;
+        }
+
+        boolean isTooLong() {
+            return tooLong;
+        }
+
+        boolean isBlank() {
+            for (int i = 0; i < length; i++) {
+                if (!Character.isWhitespace(buffer[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // One value per line: anything after it on the same line is an error, like a truncated value is
+        <T> T parse(ObjectReader objectReader) throws IOException {
+            try (JsonParser parser = objectReader.createParser(buffer, 0, length)) {
+                T value = objectReader.readValue(parser);
+                if (parser.nextToken() != null) {
+                    throw new JsonParseException(parser, "Unexpected content after the recipe");
+                }
+                return value;
+            }
+        }
+    }
+}
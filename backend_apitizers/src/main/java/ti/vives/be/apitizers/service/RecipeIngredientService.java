@@ -17,13 +17,19 @@ public class RecipeIngredientService {
     private final RecipeIngredientRepository recipeIngredientRepository;
     private final RecipeRepository recipeRepository;
     private final IngredientRepository ingredientRepository;
+    private final RecipeSearchService recipeSearchService;
+    private final CacheSyncService cacheSyncService;
 
     public RecipeIngredientService(RecipeIngredientRepository recipeIngredientRepository,
                                    RecipeRepository recipeRepository,
-                                   IngredientRepository ingredientRepository) {
+                                   IngredientRepository ingredientRepository,
+                                   RecipeSearchService recipeSearchService,
+                                   CacheSyncService cacheSyncService) {
         this.recipeIngredientRepository = recipeIngredientRepository;
         this.recipeRepository = recipeRepository;
         this.ingredientRepository = ingredientRepository;
+        this.recipeSearchService = recipeSearchService;
+        this.cacheSyncService = cacheSyncService;
     }
 
     @Transactional
@@ -40,7 +46,9 @@ public class RecipeIngredientService {
                     .orElseGet(() -> {
                         Ingredient newIngredient = new Ingredient();
                         newIngredient.setName(request.getIngredientName());
-                        return ingredientRepository.save(newIngredient);
+                        Ingredient savedIngredient = ingredientRepository.save(newIngredient);
+                        cacheSyncService.ingredientChanged(savedIngredient.getId());
+                        return savedIngredient;
                     });
         }
 
@@ -48,14 +56,24 @@ public class RecipeIngredientService {
         recipeIngredientId.setRecipeId(recipe.getId());
         recipeIngredientId.setIngredientId(ingredient.getId());
 
-        RecipeIngredient recipeIngredient = new RecipeIngredient();
-        recipeIngredient.setId(recipeIngredientId);
-        recipeIngredient.setRecipe(recipe);
-        recipeIngredient.setIngredient(ingredient);
-        recipeIngredient.setQuantity(request.getQuantity());
-        recipeIngredient.setUnit(request.getUnit());
+        // save() always inserts (RecipeIngredient is Persistable), so an ingredient the recipe already has
+        // gets its amount updated on the loaded row instead; it is already in the search index
+        RecipeIngredient savedRecipeIngredient = recipeIngredientRepository.findById(recipeIngredientId).orElse(null);
+        if (savedRecipeIngredient != null) {
+            savedRecipeIngredient.setQuantity(request.getQuantity());
+            savedRecipeIngredient.setUnit(request.getUnit());
+        } else {
+            RecipeIngredient recipeIngredient = new RecipeIngredient();
+            recipeIngredient.setId(recipeIngredientId);
+            recipeIngredient.setRecipe(recipe);
+            recipeIngredient.setIngredient(ingredient);
+            recipeIngredient.setQuantity(request.getQuantity());
+            recipeIngredient.setUnit(request.getUnit());
 
-        RecipeIngredient savedRecipeIngredient = recipeIngredientRepository.save(recipeIngredient);
+            savedRecipeIngredient = recipeIngredientRepository.save(recipeIngredient);
+            recipeSearchService.addIngredientAfterCommit(recipeId, ingredient.getName());
+        }
+        cacheSyncService.recipeChanged(recipeId);
 
         return new RecipeIngredientResponse(
                 savedRecipeIngredient.getIngredient().getId(),
@@ -66,22 +84,20 @@ public class RecipeIngredientService {
     }
 
     public List<RecipeIngredientResponse> getRecipeIngredientsByRecipeId(Integer recipeId) {
-        Recipe recipe = recipeRepository.findById(recipeId)
-                .orElseThrow(() -> new ResourceNotFoundException(recipeId, "Recipe"));
+        List<RecipeIngredientResponse> rows = recipeIngredientRepository.findResponsesByRecipeId(recipeId);
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException(recipeId, "Recipe");
+        }
 
-        return recipe.getRecipeIngredients()
-                .stream()
-                .map(recipeIngredient -> new RecipeIngredientResponse(
-                        recipeIngredient.getIngredient().getId(),
-                        recipeIngredient.getIngredient().getName(),
-                        recipeIngredient.getQuantity(),
-                        recipeIngredient.getUnit()
-                ))
+        return rows.stream()
+                .filter(row -> row.getIngredientId() != null)
                 .collect(Collectors.toList());
     }
 
     @Transactional
     public void deleteRecipeIngredientsByRecipeId(Integer recipeId) {
         recipeIngredientRepository.deleteAllByRecipeId(recipeId);
+        recipeSearchService.clearIngredientsAfterCommit(recipeId);
+        cacheSyncService.recipeChanged(recipeId);
     }
 }
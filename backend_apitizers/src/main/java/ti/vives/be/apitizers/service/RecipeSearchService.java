@@ -0,0 +1,352 @@
+package ti.vives.be.apitizers.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ti.vives.be.apitizers.dto.response.PageResponse;
+import ti.vives.be.apitizers.dto.response.RecipeSummaryResponse;
+import ti.vives.be.apitizers.exceptions.BadRequestException;
+import ti.vives.be.apitizers.model.Recipe;
+import ti.vives.be.apitizers.repository.RecipeIngredientRepository;
+import ti.vives.be.apitizers.repository.RecipeRepository;
+import ti.vives.be.apitizers.util.CursorUtil;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+@Service
+public class RecipeSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(RecipeSearchService.class);
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float INGREDIENT_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final float PREFIX_MATCH_FACTOR = 0.5f;
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private final RecipeRepository recipeRepository;
+    private final RecipeIngredientRepository recipeIngredientRepository;
+
+    // Inverted index: term -> (recipe id -> weight of the term in that recipe)
+    private final NavigableMap<String, Map<Integer, Float>> postings = new TreeMap<>();
+    private final Map<Integer, IndexedRecipe> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public RecipeSearchService(RecipeRepository recipeRepository,
+                               RecipeIngredientRepository recipeIngredientRepository) {
+        this.recipeRepository = recipeRepository;
+        this.recipeIngredientRepository = recipeIngredientRepository;
+    }
+
+    // Bulk load the index from the database once, page by page, so memory use during the rebuild stays bounded
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndex() {
+        long start = System.currentTimeMillis();
+        int indexed = 0;
+        int afterId = 0;
+        List<Recipe> batch;
+        do {
+            batch = recipeRepository.findWithCategoryAfter(afterId, Limit.of(REBUILD_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            indexBatch(batch);
+            indexed += batch.size();
+            afterId = batch.get(batch.size() - 1).getId();
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+
+        log.info("Search index built: {} recipes in {} ms", indexed, System.currentTimeMillis() - start);
+    }
+
+    // Reload recipes changed by another replica, dropping the ones that no longer exist
+    public void reindex(Collection<Integer> recipeIds) {
+        List<Recipe> recipes = recipeRepository.findWithCategoryByIdIn(recipeIds);
+        indexBatch(recipes);
+
+        Set<Integer> removed = new HashSet<>(recipeIds);
+        for (Recipe recipe : recipes) {
+            removed.remove(recipe.getId());
+        }
+        removed.forEach(this::remove);
+    }
+
+    public PageResponse<RecipeSummaryResponse> search(String query, Integer limit, String after) {
+        if (limit == null || limit < 1) {
+            throw new BadRequestException("Limit must be at least 1.");
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        int offset = CursorUtil.decodeOffset(after);
+
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (terms.isEmpty()) {
+            return new PageResponse<>(List.of(), null);
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Integer, Float> scores = score(terms);
+
+            // Keep only the best offset + pageSize + 1 hits instead of sorting every match
+            Comparator<Map.Entry<Integer, Float>> ranking = Map.Entry.<Integer, Float>comparingByValue()
+                    .thenComparing(Map.Entry.<Integer, Float>comparingByKey().reversed());
+            int wanted = offset + pageSize + 1;
+            PriorityQueue<Map.Entry<Integer, Float>> top = new PriorityQueue<>(ranking);
+            for (Map.Entry<Integer, Float> entry : scores.entrySet()) {
+                top.offer(entry);
+                if (top.size() > wanted) {
+                    top.poll();
+                }
+            }
+
+            List<Map.Entry<Integer, Float>> ranked = new ArrayList<>(top);
+            ranked.sort(ranking.reversed());
+
+            List<RecipeSummaryResponse> items = new ArrayList<>();
+            for (int i = offset; i < Math.min(ranked.size(), offset + pageSize); i++) {
+                items.add(documents.get(ranked.get(i).getKey()).summary);
+            }
+            String nextCursor = ranked.size() > offset + pageSize ? CursorUtil.encodeOffset(offset + pageSize) : null;
+            return new PageResponse<>(items, nextCursor);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The write-path hooks below only touch the index once the surrounding transaction has committed,
+    // so a rolled back save never shows up in search results.
+
+    public void indexAfterCommit(Recipe recipe, List<String> ingredientNames) {
+        afterCommit(() -> index(recipe, ingredientNames));
+    }
+
+    public void addIngredientAfterCommit(Integer recipeId, String ingredientName) {
+        afterCommit(() -> updateDocument(recipeId, document -> document.ingredientNames.add(ingredientName)));
+    }
+
+    public void clearIngredientsAfterCommit(Integer recipeId) {
+        afterCommit(() -> updateDocument(recipeId, document -> document.ingredientNames.clear()));
+    }
+
+    public void updateFavoriteAfterCommit(Integer recipeId, Boolean isFavorite) {
+        updateSummaryAfterCommit(recipeId, old -> new RecipeSummaryResponse(old.getId(), old.getName(),
+                old.getIsHealthy(), isFavorite, old.getCategoryName(), old.getImage()));
+    }
+
+    public void updateImageAfterCommit(Integer recipeId, String image) {
+        updateSummaryAfterCommit(recipeId, old -> new RecipeSummaryResponse(old.getId(), old.getName(),
+                old.getIsHealthy(), old.getIsFavorite(), old.getCategoryName(), image));
+    }
+
+    // Recipes whose indexed text changed without a write to the recipe itself (an ingredient rename)
+    public void reindexAfterCommit(Collection<Integer> recipeIds) {
+        if (!recipeIds.isEmpty()) {
+            afterCommit(() -> reindex(recipeIds));
+        }
+    }
+
+    public void removeAfterCommit(Integer recipeId) {
+        afterCommit(() -> remove(recipeId));
+    }
+
+    private void indexBatch(List<Recipe> recipes) {
+        if (recipes.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = recipes.stream().map(Recipe::getId).toList();
+        Map<Integer, List<String>> ingredientNames = new HashMap<>();
+        for (Object[] row : recipeIngredientRepository.findIngredientNamesByRecipeIds(ids)) {
+            ingredientNames.computeIfAbsent((Integer) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+
+        for (Recipe recipe : recipes) {
+            index(recipe, ingredientNames.getOrDefault(recipe.getId(), List.of()));
+        }
+    }
+
+    private void remove(Integer recipeId) {
+        lock.writeLock().lock();
+        try {
+            IndexedRecipe removed = documents.remove(recipeId);
+            if (removed != null) {
+                removePostings(recipeId, removed.weights);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(Recipe recipe, List<String> ingredientNames) {
+        IndexedRecipe document = new IndexedRecipe();
+        document.summary = new RecipeSummaryResponse(
+                recipe.getId(),
+                recipe.getName(),
+                recipe.getIsHealthy(),
+                recipe.getIsFavorite(),
+                recipe.getCategory() != null ? recipe.getCategory().getName() : null,
+                recipe.getImageThumbnail() != null ? recipe.getImageThumbnail() : recipe.getImage()
+        );
+        addTerms(document.textCounts, recipe.getName(), NAME_WEIGHT);
+        addTerms(document.textCounts, recipe.getDescription(), DESCRIPTION_WEIGHT);
+        document.ingredientNames.addAll(ingredientNames);
+
+        lock.writeLock().lock();
+        try {
+            IndexedRecipe previous = documents.put(recipe.getId(), document);
+            if (previous != null) {
+                removePostings(recipe.getId(), previous.weights);
+            }
+            document.weights = computeWeights(document);
+            addPostings(recipe.getId(), document.weights);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Summaries are replaced rather than mutated, since search results hand them out without copying
+    private void updateSummaryAfterCommit(Integer recipeId, UnaryOperator<RecipeSummaryResponse> change) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                IndexedRecipe document = documents.get(recipeId);
+                if (document != null) {
+                    document.summary = change.apply(document.summary);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private void updateDocument(Integer recipeId, Consumer<IndexedRecipe> change) {
+        lock.writeLock().lock();
+        try {
+            IndexedRecipe document = documents.get(recipeId);
+            if (document == null) {
+                return;
+            }
+            change.accept(document);
+            removePostings(recipeId, document.weights);
+            document.weights = computeWeights(document);
+            addPostings(recipeId, document.weights);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Map<Integer, Float> score(List<String> terms) {
+        int documentCount = Math.max(documents.size(), 1);
+        Map<Integer, Float> scores = new HashMap<>();
+
+        for (int i = 0; i < terms.size(); i++) {
+            String term = terms.get(i);
+            // The last term is matched as a prefix so results follow the user while typing
+            boolean lastTerm = i == terms.size() - 1;
+            Map<String, Map<Integer, Float>> matches;
+            if (lastTerm) {
+                matches = postings.subMap(term, true, term + Character.MAX_VALUE, false);
+            } else {
+                matches = postings.containsKey(term) ? Map.of(term, postings.get(term)) : Map.of();
+            }
+
+            int expansions = 0;
+            for (Map.Entry<String, Map<Integer, Float>> match : matches.entrySet()) {
+                if (expansions++ >= MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                Map<Integer, Float> recipes = match.getValue();
+                float idf = (float) Math.log(1 + (double) documentCount / recipes.size());
+                float factor = match.getKey().equals(term) ? 1f : PREFIX_MATCH_FACTOR;
+                for (Map.Entry<Integer, Float> posting : recipes.entrySet()) {
+                    scores.merge(posting.getKey(), posting.getValue() * idf * factor, Float::sum);
+                }
+            }
+        }
+        return scores;
+    }
+
+    private static Map<String, Float> computeWeights(IndexedRecipe document) {
+        Map<String, Float> counts = new HashMap<>(document.textCounts);
+        for (String ingredientName : document.ingredientNames) {
+            addTerms(counts, ingredientName, INGREDIENT_WEIGHT);
+        }
+        // Sub-linear term frequency so long descriptions do not drown out the name
+        Map<String, Float> weights = new HashMap<>();
+        counts.forEach((term, count) -> weights.put(term, (float) (1 + Math.log(count))));
+        return weights;
+    }
+
+    private void addPostings(Integer recipeId, Map<String, Float> weights) {
+        weights.forEach((term, weight) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(recipeId, weight));
+    }
+
+    private void removePostings(Integer recipeId, Map<String, Float> weights) {
+        for (String term : weights.keySet()) {
+            Map<Integer, Float> recipes = postings.get(term);
+            if (recipes != null) {
+                recipes.remove(recipeId);
+                if (recipes.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static void addTerms(Map<String, Float> counts, String text, float weight) {
+        for (String token : tokenize(text)) {
+            counts.merge(token, weight, Float::sum);
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static class IndexedRecipe {
+        private RecipeSummaryResponse summary;
+        private final Map<String, Float> textCounts = new HashMap<>();
+        private final List<String> ingredientNames = new ArrayList<>();
+        private Map<String, Float> weights = Map.of();
+    }
+}
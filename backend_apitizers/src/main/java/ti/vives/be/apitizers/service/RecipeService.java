@@ -1,70 +1,189 @@
 package ti.vives.be.apitizers.service;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import ti.vives.be.apitizers.dto.request.RecipeIngredientRequest;
 import ti.vives.be.apitizers.dto.request.RecipeRequest;
+import ti.vives.be.apitizers.dto.response.BatchItemResponse;
+import ti.vives.be.apitizers.dto.response.PageResponse;
+import ti.vives.be.apitizers.dto.response.RecipeIngredientResponse;
 import ti.vives.be.apitizers.dto.response.RecipeResponse;
+import ti.vives.be.apitizers.dto.response.RecipeSummaryResponse;
+import ti.vives.be.apitizers.dto.response.RecipeWithIngredientsResponse;
+import ti.vives.be.apitizers.exceptions.BadRequestException;
+import ti.vives.be.apitizers.exceptions.PreconditionFailedException;
 import ti.vives.be.apitizers.exceptions.ResourceNotFoundException;
 import ti.vives.be.apitizers.model.*;
 import ti.vives.be.apitizers.repository.CategoryRepository;
-import ti.vives.be.apitizers.repository.IngredientRepository;
+import ti.vives.be.apitizers.repository.CollectionVersion;
 import ti.vives.be.apitizers.repository.RecipeIngredientRepository;
 import ti.vives.be.apitizers.repository.RecipeRepository;
-import ti.vives.be.apitizers.util.FirebaseStorageUtil;
+import ti.vives.be.apitizers.util.CursorUtil;
+import ti.vives.be.apitizers.util.ETagUtil;
+import ti.vives.be.apitizers.util.WriteCoalescer;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class RecipeService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
+    // SQL Server takes at most 2100 parameters per statement; IN lists are padded to the next power of two
+    static final int IN_LIST_CHUNK_SIZE = 500;
+
     private final RecipeRepository recipeRepository;
     private final CategoryRepository categoryRepository;
-    private final IngredientRepository ingredientRepository;
+    private final IngredientService ingredientService;
     private final RecipeIngredientRepository recipeIngredientRepository;
+    private final RecipeSearchService recipeSearchService;
+    private final ImageUploadService imageUploadService;
+    private final RecipeCacheService recipeCacheService;
+    private final CacheSyncService cacheSyncService;
+    private final TransactionTemplate transactionTemplate;
+    // Null when coalescing is disabled
+    private final WriteCoalescer<RecipeResponse> favoriteCoalescer;
+    private final int maxBatchIds;
 
     public RecipeService(RecipeRepository recipeRepository,
                          CategoryRepository categoryRepository,
-                         IngredientRepository ingredientRepository,
-                         RecipeIngredientRepository recipeIngredientRepository) {
+                         IngredientService ingredientService,
+                         RecipeIngredientRepository recipeIngredientRepository,
+                         RecipeSearchService recipeSearchService,
+                         ImageUploadService imageUploadService,
+                         RecipeCacheService recipeCacheService,
+                         CacheSyncService cacheSyncService,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${apitizers.favorites.coalesce-window}") Duration favoriteCoalesceWindow,
+                         @Value("${apitizers.recipes.max-batch-ids}") int maxBatchIds) {
         this.recipeRepository = recipeRepository;
         this.categoryRepository = categoryRepository;
-        this.ingredientRepository = ingredientRepository;
+        this.ingredientService = ingredientService;
         this.recipeIngredientRepository = recipeIngredientRepository;
+        this.recipeSearchService = recipeSearchService;
+        this.imageUploadService = imageUploadService;
+        this.recipeCacheService = recipeCacheService;
+        this.cacheSyncService = cacheSyncService;
+        this.transactionTemplate = transactionTemplate;
+        this.favoriteCoalescer = favoriteCoalesceWindow.isZero() ? null
+                : new WriteCoalescer<>(favoriteCoalesceWindow, this::writeFavoriteToggles);
+        this.maxBatchIds = maxBatchIds;
     }
 
-    public List<RecipeResponse> getAllRecipes() {
-        return recipeRepository.findAll()
-                .stream()
-                .map(recipe -> new RecipeResponse(
-                        recipe.getId(),
-                        recipe.getName(),
-                        recipe.getDescription(),
-                        recipe.getInstructions(),
-                        recipe.getIsHealthy(),
-                        recipe.getIsFavorite(),
-                        recipe.getCategory() != null ? recipe.getCategory().getName() : null,
-                        recipe.getImage()
-                ))
-                .collect(Collectors.toList());
+    public PageResponse<RecipeSummaryResponse> getAllRecipes(Integer limit, String after, boolean favoritesOnly) {
+        if (limit == null || limit < 1) {
+            throw new BadRequestException("Limit must be at least 1.");
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        int afterId = CursorUtil.decode(after);
+
+        // Fetch one extra row to know whether another page exists
+        List<RecipeSummaryResponse> items = favoritesOnly
+                ? recipeRepository.findFavoriteSummaryPageAfter(afterId, Limit.of(pageSize + 1))
+                : recipeRepository.findSummaryPageAfter(afterId, Limit.of(pageSize + 1));
+        boolean hasMore = items.size() > pageSize;
+        if (hasMore) {
+            items = items.subList(0, pageSize);
+        }
+
+        String nextCursor = hasMore ? CursorUtil.encode(items.get(items.size() - 1).getId()) : null;
+        return new PageResponse<>(items, nextCursor);
+    }
+
+    // Kept in memory: every path that changes a recipe evicts the recipe cache, which resets it
+    public CollectionVersion getCollectionVersion() {
+        return recipeCacheService.getCollectionVersion(recipeRepository::findCollectionVersion);
     }
 
     public RecipeResponse getRecipeById(Integer id) {
-        Recipe recipe = recipeRepository.findById(id)
+        return recipeCacheService.get(id, recipeId -> transactionTemplate.execute(status -> {
+            Recipe recipe = recipeRepository.findById(recipeId)
+                    .orElseThrow(() -> new ResourceNotFoundException(recipeId, "Recipe"));
+            return mapToResponse(recipe);
+        }));
+    }
+
+    // Not cached: ingredient changes do not bump the recipe version, and the plain detail is the one worth caching.
+    // The single fetch-join statement makes a miss as cheap as the two-request alternative's first call.
+    public RecipeWithIngredientsResponse getRecipeWithIngredients(Integer id) {
+        Recipe recipe = recipeRepository.findWithIngredientsById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(id, "Recipe"));
-        return new RecipeResponse(
-                recipe.getId(),
-                recipe.getName(),
-                recipe.getDescription(),
-                recipe.getInstructions(),
-                recipe.getIsHealthy(),
-                recipe.getIsFavorite(),
-                recipe.getCategory() != null ? recipe.getCategory().getName() : null,
-                recipe.getImage()
-        );
+        return detailWithIngredients(mapToResponse(recipe), mapIngredients(recipe));
+    }
+
+    // Multi-get in request order, with a not-found entry for ids that do not exist. Plain details come from the
+    // recipe cache where possible; the rest are read with one IN-list query per chunk, plus one for their
+    // ingredients when those are asked for.
+    public List<BatchItemResponse<RecipeResponse>> getRecipesByIds(List<Integer> ids, boolean withIngredients) {
+        if (ids == null || ids.isEmpty() || ids.contains(null)) {
+            throw new BadRequestException("Ids must be a comma separated list of recipe ids.");
+        }
+        if (ids.size() > maxBatchIds) {
+            throw new BadRequestException("At most " + maxBatchIds + " ids can be requested at once.");
+        }
+
+        Map<Integer, RecipeResponse> found = new HashMap<>();
+        List<Integer> toLoad = new ArrayList<>();
+        for (Integer id : new LinkedHashSet<>(ids)) {
+            RecipeResponse cached = withIngredients ? null : recipeCacheService.getIfPresent(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                toLoad.add(id);
+            }
+        }
+
+        if (!toLoad.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int from = 0; from < toLoad.size(); from += IN_LIST_CHUNK_SIZE) {
+                    List<Integer> chunk = toLoad.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, toLoad.size()));
+                    loadChunk(chunk, withIngredients, found);
+                }
+            });
+        }
+
+        List<BatchItemResponse<RecipeResponse>> items = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            items.add(new BatchItemResponse<>(id, found.get(id)));
+        }
+        return items;
+    }
+
+    private void loadChunk(List<Integer> recipeIds, boolean withIngredients, Map<Integer, RecipeResponse> found) {
+        List<Recipe> recipes = recipeRepository.findWithCategoryByIdIn(recipeIds);
+        if (!withIngredients) {
+            for (Recipe recipe : recipes) {
+                found.put(recipe.getId(), mapToResponse(recipe));
+            }
+            return;
+        }
+        if (recipes.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, List<RecipeIngredientResponse>> ingredientsByRecipe = new HashMap<>();
+        for (Recipe recipe : recipes) {
+            ingredientsByRecipe.put(recipe.getId(), new ArrayList<>());
+        }
+        for (RecipeIngredient recipeIngredient : recipeIngredientRepository.findWithIngredientByRecipeIdIn(ingredientsByRecipe.keySet())) {
+            ingredientsByRecipe.get(recipeIngredient.getId().getRecipeId()).add(mapIngredient(recipeIngredient));
+        }
+        for (Recipe recipe : recipes) {
+            found.put(recipe.getId(), detailWithIngredients(mapToResponse(recipe), ingredientsByRecipe.get(recipe.getId())));
+        }
     }
 
     @Transactional
@@ -81,49 +200,37 @@ public class RecipeService {
         recipe.setIsFavorite(recipeRequest.getIsFavorite());
         recipe.setCategory(category);
 
-        // Handle the image upload
+        // Mark the image as pending up front so the INSERT already carries the state
         if (imageFile != null && !imageFile.isEmpty()) {
-            String imageUrl = FirebaseStorageUtil.uploadFile(imageFile, "recipes");
-            recipe.setImage(imageUrl);
+            recipe.setImageState(ImageState.PENDING);
         }
 
         // Save the recipe first to generate its ID
         Recipe savedRecipe = recipeRepository.save(recipe);
 
-        // Iterate through recipe ingredients and persist them
-        for (RecipeIngredientRequest ingredientRequest : recipeRequest.getRecipeIngredients()) {
-            // Check or create the ingredient
-            Ingredient ingredient = ingredientRepository.findByName(ingredientRequest.getIngredientName())
-                    .orElseGet(() -> {
-                        Ingredient newIngredient = new Ingredient();
-                        newIngredient.setName(ingredientRequest.getIngredientName());
-                        return ingredientRepository.save(newIngredient);
-                    });
-
-            // Create the composite key
-            RecipeIngredientId recipeIngredientId = new RecipeIngredientId();
-            recipeIngredientId.setRecipeId(savedRecipe.getId());
-            recipeIngredientId.setIngredientId(ingredient.getId());
-
-            // Create and save the RecipeIngredient
-            RecipeIngredient recipeIngredient = new RecipeIngredient();
-            recipeIngredient.setId(recipeIngredientId);
-            recipeIngredient.setRecipe(savedRecipe);
-            recipeIngredient.setIngredient(ingredient);
-            recipeIngredient.setQuantity(ingredientRequest.getQuantity());
-            recipeIngredient.setUnit(ingredientRequest.getUnit());
-
-            recipeIngredientRepository.save(recipeIngredient); // Save individually to avoid session conflicts
+        // The image is uploaded in the background once this transaction has committed
+        if (imageFile != null && !imageFile.isEmpty()) {
+            imageUploadService.stage(savedRecipe, imageFile);
         }
 
+        // Resolve all ingredients at once and write the rows as one JDBC batch
+        recipeIngredientRepository.saveAll(buildRecipeIngredients(savedRecipe, recipeRequest.getRecipeIngredients()));
+
+        recipeSearchService.indexAfterCommit(savedRecipe, ingredientNames(recipeRequest));
+        cacheSyncService.recipeChanged(savedRecipe.getId());
         return mapToResponse(savedRecipe);
     }
 
     @Transactional
-    public RecipeResponse updateRecipe(Integer id, RecipeRequest recipeRequest, MultipartFile imageFile) throws IOException {
+    public RecipeResponse updateRecipe(Integer id, RecipeRequest recipeRequest, MultipartFile imageFile, String ifMatch) throws IOException {
         Recipe recipe = recipeRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(id, "Recipe"));
 
+        // Reject writes based on an outdated copy instead of silently overwriting newer changes
+        if (!ETagUtil.matchesRecipe(ifMatch, recipe.getId(), recipe.getVersion())) {
+            throw new PreconditionFailedException("Recipe " + id + " was modified since it was read.");
+        }
+
         Category category = categoryRepository.findById(recipeRequest.getCategoryId())
                 .orElseThrow(() -> new ResourceNotFoundException(recipeRequest.getCategoryId(), "Category"));
 
@@ -134,52 +241,34 @@ public class RecipeService {
         recipe.setIsFavorite(recipeRequest.getIsFavorite());
         recipe.setCategory(category);
 
-        // Handle new image if provided
+        // Handle new image if provided, the old image URL stays in place until the upload has finished
         if (imageFile != null && !imageFile.isEmpty()) {
-            String imageUrl = FirebaseStorageUtil.uploadFile(imageFile, "recipes");
-            recipe.setImage(imageUrl); // Replace the old image URL
+            imageUploadService.stage(recipe, imageFile);
         }
 
-        // Clear and update recipe ingredients
-        recipeIngredientRepository.deleteAllByRecipeId(recipe.getId());
-        for (RecipeIngredientRequest ingredientRequest : recipeRequest.getRecipeIngredients()) {
-            Ingredient ingredient = ingredientRepository.findByName(ingredientRequest.getIngredientName())
-                    .orElseGet(() -> {
-                        Ingredient newIngredient = new Ingredient();
-                        newIngredient.setName(ingredientRequest.getIngredientName());
-                        return ingredientRepository.save(newIngredient);
-                    });
-
-            // Create the composite key
-            RecipeIngredientId recipeIngredientId = new RecipeIngredientId();
-            recipeIngredientId.setRecipeId(recipe.getId());
-            recipeIngredientId.setIngredientId(ingredient.getId());
+        // Only write the ingredient rows that actually changed
+        syncRecipeIngredients(recipe, recipeRequest.getRecipeIngredients());
 
-            // Create and save the RecipeIngredient
-            RecipeIngredient recipeIngredient = new RecipeIngredient();
-            recipeIngredient.setId(recipeIngredientId);
-            recipeIngredient.setRecipe(recipe);
-            recipeIngredient.setIngredient(ingredient);
-            recipeIngredient.setQuantity(ingredientRequest.getQuantity());
-            recipeIngredient.setUnit(ingredientRequest.getUnit());
-
-            recipeIngredientRepository.save(recipeIngredient);
-        }
-
-        Recipe updatedRecipe = recipeRepository.save(recipe);
+        // Flush so the response carries the new version
+        Recipe updatedRecipe = recipeRepository.saveAndFlush(recipe);
+        recipeSearchService.indexAfterCommit(updatedRecipe, ingredientNames(recipeRequest));
+        cacheSyncService.recipeChanged(id);
         return mapToResponse(updatedRecipe);
     }
 
 
     @Transactional
     public void deleteRecipe(Integer id) {
-        if (!recipeRepository.existsById(id)) {
-            throw new ResourceNotFoundException(id, "Recipe");
-        }
-        recipeRepository.deleteById(id);
+        Recipe recipe = recipeRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException(id, "Recipe"));
+        imageUploadService.removeRecipeImages(recipe);
+        recipeRepository.delete(recipe);
+        recipeSearchService.removeAfterCommit(id);
+        cacheSyncService.recipeChanged(id);
     }
 
-    private RecipeResponse mapToResponse(Recipe recipe) {
+    // Static and public so benchmark_apitizers can measure the mapping on its own
+    public static RecipeResponse mapToResponse(Recipe recipe) {
         return new RecipeResponse(
                 recipe.getId(),
                 recipe.getName(),
@@ -188,17 +277,138 @@ public class RecipeService {
                 recipe.getIsHealthy(),
                 recipe.getIsFavorite(),
                 recipe.getCategory() != null ? recipe.getCategory().getName() : null,
-                recipe.getImage()
+                recipe.getImage(),
+                recipe.getImageCard(),
+                recipe.getImageThumbnail(),
+                recipe.getImageState() != null ? recipe.getImageState().name() : null,
+                recipe.getVersion(),
+                recipe.getUpdatedAt()
         );
     }
 
-    @Transactional
+    private static RecipeWithIngredientsResponse detailWithIngredients(RecipeResponse detail, List<RecipeIngredientResponse> ingredients) {
+        return new RecipeWithIngredientsResponse(
+                detail.getId(),
+                detail.getName(),
+                detail.getDescription(),
+                detail.getInstructions(),
+                detail.getIsHealthy(),
+                detail.getIsFavorite(),
+                detail.getCategoryName(),
+                detail.getImage(),
+                detail.getImageCard(),
+                detail.getImageThumbnail(),
+                detail.getImageState(),
+                detail.getVersion(),
+                detail.getUpdatedAt(),
+                ingredients
+        );
+    }
+
+    // The recipe's ingredients in collection order, which the fetch-join queries set
+    public static List<RecipeIngredientResponse> mapIngredients(Recipe recipe) {
+        List<RecipeIngredientResponse> ingredients = new ArrayList<>(recipe.getRecipeIngredients().size());
+        for (RecipeIngredient recipeIngredient : recipe.getRecipeIngredients()) {
+            ingredients.add(mapIngredient(recipeIngredient));
+        }
+        return ingredients;
+    }
+
+    private static RecipeIngredientResponse mapIngredient(RecipeIngredient recipeIngredient) {
+        return new RecipeIngredientResponse(
+                recipeIngredient.getIngredient().getId(),
+                recipeIngredient.getIngredient().getName(),
+                recipeIngredient.getQuantity(),
+                recipeIngredient.getUnit());
+    }
+
     public RecipeResponse toggleFavorite(Integer id) {
-        Recipe recipe = recipeRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException(id, "Recipe"));
-        recipe.setIsFavorite(!recipe.getIsFavorite());
-        Recipe updatedRecipe = recipeRepository.save(recipe);
-        return mapToResponse(updatedRecipe);
+        if (favoriteCoalescer != null) {
+            return favoriteCoalescer.submit(id);
+        }
+        return writeFavoriteToggles(id, 1);
+    }
+
+    // Apply a number of toggles with at most one UPDATE; an even number cancels out and writes nothing
+    private RecipeResponse writeFavoriteToggles(Integer id, int toggles) {
+        if (toggles % 2 == 0) {
+            return getRecipeById(id);
+        }
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            RecipeResponse toggled = recipeRepository.toggleFavorite(id, now)
+                    .orElseThrow(() -> new ResourceNotFoundException(id, "Recipe"));
+            recipeSearchService.updateFavoriteAfterCommit(id, toggled.getIsFavorite());
+            cacheSyncService.recipeChanged(id);
+            return toggled;
+        });
+    }
+
+    private void syncRecipeIngredients(Recipe recipe, List<RecipeIngredientRequest> ingredientRequests) {
+        Map<RecipeIngredientId, RecipeIngredient> wanted = new HashMap<>();
+        for (RecipeIngredient recipeIngredient : buildRecipeIngredients(recipe, ingredientRequests)) {
+            wanted.put(recipeIngredient.getId(), recipeIngredient);
+        }
+
+        List<RecipeIngredient> removed = new ArrayList<>();
+        for (RecipeIngredient existing : recipeIngredientRepository.findByIdRecipeId(recipe.getId())) {
+            RecipeIngredient requested = wanted.remove(existing.getId());
+            if (requested == null) {
+                removed.add(existing);
+            } else if (!sameAmount(existing, requested)) {
+                // Managed entity, dirty checking turns this into an UPDATE on flush
+                existing.setQuantity(requested.getQuantity());
+                existing.setUnit(requested.getUnit());
+            }
+        }
+
+        if (!removed.isEmpty()) {
+            recipeIngredientRepository.deleteAllInBatch(removed);
+        }
+        if (!wanted.isEmpty()) {
+            recipeIngredientRepository.saveAll(wanted.values());
+        }
+    }
+
+    private boolean sameAmount(RecipeIngredient existing, RecipeIngredient requested) {
+        // compareTo so 2.0 and 2.00 count as the same quantity
+        boolean sameQuantity = existing.getQuantity() == null
+                ? requested.getQuantity() == null
+                : requested.getQuantity() != null && existing.getQuantity().compareTo(requested.getQuantity()) == 0;
+        return sameQuantity && Objects.equals(existing.getUnit(), requested.getUnit());
+    }
+
+    private List<RecipeIngredient> buildRecipeIngredients(Recipe recipe, List<RecipeIngredientRequest> ingredientRequests) {
+        Map<String, Ingredient> ingredients = ingredientService.resolveByNames(
+                ingredientRequests.stream().map(RecipeIngredientRequest::getIngredientName).toList());
+
+        // Keyed by ingredient id so a duplicated ingredient keeps its last quantity instead of clashing on the key
+        Map<Integer, RecipeIngredient> recipeIngredients = new LinkedHashMap<>();
+        for (RecipeIngredientRequest ingredientRequest : ingredientRequests) {
+            Ingredient ingredient = ingredients.get(ingredientRequest.getIngredientName());
+
+            // Create the composite key
+            RecipeIngredientId recipeIngredientId = new RecipeIngredientId();
+            recipeIngredientId.setRecipeId(recipe.getId());
+            recipeIngredientId.setIngredientId(ingredient.getId());
+
+            RecipeIngredient recipeIngredient = new RecipeIngredient();
+            recipeIngredient.setId(recipeIngredientId);
+            recipeIngredient.setRecipe(recipe);
+            recipeIngredient.setIngredient(ingredient);
+            recipeIngredient.setQuantity(ingredientRequest.getQuantity());
+            recipeIngredient.setUnit(ingredientRequest.getUnit());
+
+            recipeIngredients.put(ingredient.getId(), recipeIngredient);
+        }
+        return new ArrayList<>(recipeIngredients.values());
+    }
+
+    private List<String> ingredientNames(RecipeRequest recipeRequest) {
+        return recipeRequest.getRecipeIngredients()
+                .stream()
+                .map(RecipeIngredientRequest::getIngredientName)
+                .toList();
     }
 
 }
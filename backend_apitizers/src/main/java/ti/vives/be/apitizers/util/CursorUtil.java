@@ -0,0 +1,55 @@
+package ti.vives.be.apitizers.util;
+
+import ti.vives.be.apitizers.exceptions.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public class CursorUtil {
+
+    private static final String ID_PREFIX = "id:";
+    private static final String OFFSET_PREFIX = "offset:";
+
+    // Encode the last seen id as an opaque, URL-safe cursor
+    public static String encode(Integer lastId) {
+        return lastId == null ? null : encode(ID_PREFIX, lastId);
+    }
+
+    // Decode a cursor back to the last seen id, 0 when no cursor was given
+    public static int decode(String cursor) {
+        return decode(ID_PREFIX, cursor);
+    }
+
+    // Cursors over ranked, in-memory results (e.g. search) carry a position instead of an id
+    public static String encodeOffset(int offset) {
+        return encode(OFFSET_PREFIX, offset);
+    }
+
+    public static int decodeOffset(String cursor) {
+        return decode(OFFSET_PREFIX, cursor);
+    }
+
+    private static String encode(String prefix, int value) {
+        byte[] raw = (prefix + value).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    private static int decode(String prefix, String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(prefix)) {
+                throw new BadRequestException("Invalid cursor: " + cursor);
+            }
+            int value = Integer.parseInt(raw.substring(prefix.length()));
+            if (value < 0) {
+                throw new BadRequestException("Invalid cursor: " + cursor);
+            }
+            return value;
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package ti.vives.be.apitizers.util;
+
+import org.springframework.http.MediaType;
+import ti.vives.be.apitizers.repository.CollectionVersion;
+
+import java.time.Instant;
+
+public class ETagUtil {
+
+    // Collection ETags are weak: the JSON, Smile and CBOR bodies (gzipped or not) of one version are equivalent but
+    // not byte-identical, and Tomcat does not compress a response that carries a strong ETag
+    private static final String WEAK = "W/";
+
+    // Strong, so it names one representation: the detail of a version differs in bytes between JSON, Smile and CBOR.
+    // Tomcat leaves responses with a strong ETag uncompressed, so the tag always describes the bytes that were sent.
+    public static String recipeETag(Integer id, Integer version, MediaType representation) {
+        return "\"recipe-" + id + "-" + version + "-" + representation.getSubtype().replace("x-jackson-", "") + "\"";
+    }
+
+    // Collection ETag from the table aggregate plus whatever parameters select the returned slice
+    public static String collectionETag(String collection, CollectionVersion version, Object... parameters) {
+        StringBuilder etag = new StringBuilder(WEAK).append('"')
+                .append(collection).append('-')
+                .append(version.getCount()).append('-')
+                .append(version.getMaxId() != null ? version.getMaxId() : 0).append('-')
+                .append(version.getVersionSum() != null ? version.getVersionSum() : 0);
+        for (Object parameter : parameters) {
+            etag.append('-').append(parameter != null ? parameter : "");
+        }
+        return etag.append('"').toString();
+    }
+
+    public static long lastModified(Instant updatedAt) {
+        return updatedAt != null ? updatedAt.toEpochMilli() : -1;
+    }
+
+    // If-Match holds one or more ETags or '*'; a missing header means no precondition. Compared strongly
+    // (RFC 9110): a weak tag never matches. The validator is the recipe's version, so the detail ETag of any
+    // representation of the current version matches.
+    public static boolean matchesRecipe(String ifMatch, Integer id, Integer version) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return true;
+        }
+        String current = "\"recipe-" + id + "-" + version + "-";
+        for (String candidate : ifMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*")) {
+                return true;
+            }
+            if (trimmed.startsWith(current) && trimmed.endsWith("\"")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
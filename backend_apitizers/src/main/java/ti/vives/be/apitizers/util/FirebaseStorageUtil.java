@@ -1,52 +1,205 @@
 package ti.vives.be.apitizers.util;
 
+import com.google.cloud.WriteChannel;
 import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.BlobInfo;
 import com.google.cloud.storage.Bucket;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageException;
 import com.google.firebase.cloud.StorageClient;
-import org.springframework.web.multipart.MultipartFile;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 public class FirebaseStorageUtil {
 
-    public static String uploadFile(MultipartFile file, String folder) throws IOException {
-        String fileName = folder + "/" + System.currentTimeMillis() + "_" + file.getOriginalFilename();
+    // Size of the resumable upload chunks sent to storage (must be a multiple of 256 KB)
+    static final int CHUNK_SIZE = 256 * 1024;
 
-        // Get the Firebase Storage bucket
-        Bucket bucket = StorageClient.getInstance().bucket();
+    // Size of the buffer used to copy from the source stream into the upload channel
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String TOKEN_METADATA = "firebaseStorageDownloadTokens";
+    private static final int PRECONDITION_FAILED = 412;
+
+    // Set once at startup by bindMetrics; until then (and in plain unit tests) uploads record nothing
+    private static volatile UploadMeters meters;
+
+    // When set, used instead of the Firebase default bucket (a local stand-in for load tests)
+    private static volatile Target override;
+
+    public static void useStorage(Storage storage, String bucketName) {
+        override = storage != null ? new Target(storage, bucketName) : null;
+    }
+
+    // Registers the upload meters once, so an upload only records into existing ones
+    public static void bindMetrics(MeterRegistry registry) {
+        meters = new UploadMeters(
+                uploadTimer(registry, "success"),
+                uploadTimer(registry, "failure"),
+                // Lost a doesNotExist() race: not a failure, the object is there
+                uploadTimer(registry, "exists"),
+                DistributionSummary.builder("apitizers.storage.upload.size")
+                        .baseUnit("bytes")
+                        .description("Bytes written to storage per upload")
+                        .register(registry));
+    }
+
+    // Upload under a fixed (content-addressed) name, reusing the stored object when it already exists
+    public static String uploadFileIfAbsent(InputStream content, String contentType, String objectName) throws IOException {
+        Target target = target();
+        return uploadFileIfAbsent(target.storage(), target.bucketName(), content, contentType, objectName);
+    }
+
+    static String uploadFileIfAbsent(Storage storage, String bucketName, InputStream content,
+                                     String contentType, String objectName) throws IOException {
+        Blob existing = storage.get(BlobId.of(bucketName, objectName));
+        if (existing != null) {
+            return downloadUrl(bucketName, objectName, downloadToken(storage, existing));
+        }
 
-        // Generate a unique token for the file
         String downloadToken = UUID.randomUUID().toString();
+        try {
+            // doesNotExist() makes a concurrent upload of the same content lose cleanly instead of overwriting the token
+            write(storage, blobInfo(bucketName, objectName, contentType, downloadToken), content,
+                    Storage.BlobWriteOption.doesNotExist());
+        } catch (StorageException e) {
+            if (e.getCode() != PRECONDITION_FAILED) {
+                throw e;
+            }
+            Blob winner = storage.get(BlobId.of(bucketName, objectName));
+            return downloadUrl(bucketName, objectName, downloadToken(storage, winner));
+        }
+        return downloadUrl(bucketName, objectName, downloadToken);
+    }
+
+    public static void deleteFiles(Collection<String> objectNames) {
+        Target target = target();
+        for (String objectName : objectNames) {
+            target.storage().delete(BlobId.of(target.bucketName(), objectName));
+        }
+    }
 
+    private static Target target() {
+        Target target = override;
+        if (target != null) {
+            return target;
+        }
+        // Get the Firebase Storage bucket
+        Bucket bucket = StorageClient.getInstance().bucket();
+        return new Target(bucket.getStorage(), bucket.getName());
+    }
+
+    private static BlobInfo blobInfo(String bucketName, String fileName, String contentType, String downloadToken) {
         // Set metadata
         Map<String, String> metadata = new HashMap<>();
-        metadata.put("firebaseStorageDownloadTokens", downloadToken);
+        metadata.put(TOKEN_METADATA, downloadToken);
 
         // Create the blob with metadata
-        BlobInfo blobInfo = BlobInfo.newBuilder(bucket.getName(), fileName)
-                .setContentType(file.getContentType())
+        return BlobInfo.newBuilder(bucketName, fileName)
+                .setContentType(contentType)
                 .setMetadata(metadata)
                 .build();
+    }
 
+    // Stream the file to Firebase Storage through a resumable upload,
+    // so only one chunk and one copy buffer are on the heap at any time
+    private static void write(Storage storage, BlobInfo blobInfo, InputStream content,
+                              Storage.BlobWriteOption... options) throws IOException {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.FAILURE;
+        long bytes = 0;
+        try {
+            try (WriteChannel writer = storage.writer(blobInfo, options)) {
+                writer.setChunkSize(CHUNK_SIZE);
+                byte[] buffer = new byte[BUFFER_SIZE];
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    byteBuffer.clear().limit(read);
+                    while (byteBuffer.hasRemaining()) {
+                        writer.write(byteBuffer);
+                    }
+                    bytes += read;
+                }
+            }
+            // Set after close(), which uploads the last chunk and can still fail
+            outcome = Outcome.SUCCESS;
+        } catch (StorageException e) {
+            if (e.getCode() == PRECONDITION_FAILED) {
+                outcome = Outcome.EXISTS;
+            }
+            throw e;
+        } finally {
+            UploadMeters current = meters;
+            if (current != null) {
+                current.record(outcome, System.nanoTime() - start, bytes);
+            }
+        }
+    }
 
-        // Upload the file to Firebase Storage
-        Blob blob = bucket.create(fileName, file.getBytes(), file.getContentType());
+    private static Timer uploadTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("apitizers.storage.upload")
+                .description("Duration of uploads to storage")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
 
+    private static String downloadToken(Storage storage, Blob blob) {
+        Map<String, String> metadata = blob.getMetadata();
+        String tokens = metadata != null ? metadata.get(TOKEN_METADATA) : null;
+        if (tokens != null && !tokens.isBlank()) {
+            // Firebase keeps a comma separated list, any of them is valid
+            return tokens.split(",")[0];
+        }
+        // Object without a token (e.g. written by another tool), give it one
+        String downloadToken = UUID.randomUUID().toString();
+        Map<String, String> updated = metadata != null ? new HashMap<>(metadata) : new HashMap<>();
+        updated.put(TOKEN_METADATA, downloadToken);
+        storage.update(blob.toBuilder().setMetadata(updated).build());
+        return downloadToken;
+    }
+
+    private static String downloadUrl(String bucketName, String fileName, String downloadToken) {
         // Generate the download URL
-        String downloadUrl = String.format(
+        return String.format(
                 "https://firebasestorage.googleapis.com/v0/b/%s/o/%s?alt=media&token=%s",
-                bucket.getName(),
+                bucketName,
                 URLEncoder.encode(fileName, StandardCharsets.UTF_8),
                 downloadToken
         );
+    }
+
+    private record Target(Storage storage, String bucketName) {
+    }
+
+    private enum Outcome {
+        SUCCESS, FAILURE, EXISTS
+    }
+
+    private record UploadMeters(Timer success, Timer failure, Timer exists, DistributionSummary size) {
 
-        // Return the public download URL
-        return downloadUrl;
+        void record(Outcome outcome, long nanos, long bytes) {
+            switch (outcome) {
+                case SUCCESS -> {
+                    success.record(nanos, TimeUnit.NANOSECONDS);
+                    size.record(bytes);
+                }
+                case FAILURE -> failure.record(nanos, TimeUnit.NANOSECONDS);
+                case EXISTS -> exists.record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
     }
 }
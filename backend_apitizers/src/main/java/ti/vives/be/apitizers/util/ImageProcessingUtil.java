@@ -0,0 +1,137 @@
+package ti.vives.be.apitizers.util;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+
+public class ImageProcessingUtil {
+
+    private static final float JPEG_QUALITY = 0.8f;
+
+    // Declared from largest to smallest, each variant is scaled down from the previous one
+    public enum Variant {
+        FULL("full", 1280),
+        CARD("card", 480),
+        THUMBNAIL("thumb", 160);
+
+        private final String suffix;
+        private final int maxSize;
+
+        Variant(String suffix, int maxSize) {
+            this.suffix = suffix;
+            this.maxSize = maxSize;
+        }
+
+        public String getSuffix() {
+            return suffix;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+    }
+
+    // Decode the image once and encode every variant as a metadata-free JPEG.
+    // Returns null when the file is not an image format we can decode.
+    public static Map<Variant, byte[]> createVariants(Path source) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                // Ignoring metadata drops EXIF (GPS, camera data) along the way
+                reader.setInput(input, true, true);
+
+                // Subsample while decoding so a 12 MP photo never becomes a full-size bitmap on the heap
+                int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, longestSide / (Variant.FULL.maxSize * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+                BufferedImage current = toRgb(reader.read(0, param));
+                Map<Variant, byte[]> variants = new EnumMap<>(Variant.class);
+                for (Variant variant : Variant.values()) {
+                    current = scaleDown(current, variant.maxSize);
+                    variants.put(variant, encodeJpeg(current));
+                }
+                return variants;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        // JPEG has no alpha channel, flatten transparent images onto white
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rgb;
+    }
+
+    private static BufferedImage scaleDown(BufferedImage image, int maxSize) {
+        BufferedImage current = image;
+        int longestSide = Math.max(current.getWidth(), current.getHeight());
+        // Halve in steps before the final resize, bilinear filtering loses detail beyond a factor of two
+        while (longestSide > maxSize) {
+            double factor = Math.max(0.5, (double) maxSize / longestSide);
+            int width = Math.max(1, (int) Math.round(current.getWidth() * factor));
+            int height = Math.max(1, (int) Math.round(current.getHeight() * factor));
+
+            BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = scaled.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = scaled;
+            longestSide = Math.max(width, height);
+        }
+        return current;
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            // No metadata is passed to the writer, so the output carries none
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+}
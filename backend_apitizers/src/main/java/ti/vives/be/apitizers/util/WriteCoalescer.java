@@ -0,0 +1,62 @@
+package ti.vives.be.apitizers.util;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+// Merges writes to the same key that arrive within a short window into a single flush.
+// The first write opens the window, later ones join it, and every caller gets the result of the one flush.
+public class WriteCoalescer<T> {
+
+    private final BiFunction<Integer, Integer, T> flush; // (key, number of merged writes) -> result
+    private final Executor delayed;
+    private final ConcurrentMap<Integer, Batch<T>> open = new ConcurrentHashMap<>();
+
+    public WriteCoalescer(Duration window, BiFunction<Integer, Integer, T> flush) {
+        this.flush = flush;
+        // Flushes block on the database, so each one gets its own virtual thread rather than a shared timer thread
+        this.delayed = CompletableFuture.delayedExecutor(window.toMillis(), TimeUnit.MILLISECONDS,
+                Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public T submit(Integer key) {
+        Batch<T> batch = open.compute(key, (k, current) -> {
+            if (current != null) {
+                current.writes++;
+                return current;
+            }
+            Batch<T> created = new Batch<>();
+            delayed.execute(() -> flush(k, created));
+            return created;
+        });
+        try {
+            return batch.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void flush(Integer key, Batch<T> batch) {
+        // Close the window first; the map's locking makes the final write count visible here
+        open.remove(key, batch);
+        try {
+            batch.result.complete(flush.apply(key, batch.writes));
+        } catch (RuntimeException e) {
+            batch.result.completeExceptionally(e);
+        }
+    }
+
+    private static class Batch<T> {
+        private int writes = 1;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+    }
+}
@@ -1,13 +1,33 @@
 package ti.vives.be.apitizers;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// Embedded database instead of DATABASE_URL, so the full context (second-level cache included) starts anywhere
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:context-loads;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.datasource.password="
+})
 class ApitizersApplicationTests {
 
+	@Autowired
+	private MeterRegistry meterRegistry;
+
 	@Test
 	void contextLoads() {
 	}
 
+	// Recipe cache statistics are only published as meters (/actuator/prometheus), not through the public API
+	@Test
+	void recipeCacheExportsMeters() {
+		assertNotNull(meterRegistry.find("cache.gets").tag("cache", "recipes").tag("result", "hit").functionCounter());
+		assertNotNull(meterRegistry.find("cache.size").tag("cache", "recipes").gauge());
+	}
+
 }
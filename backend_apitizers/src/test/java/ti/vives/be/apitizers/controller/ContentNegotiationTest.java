@@ -0,0 +1,218 @@
+package ti.vives.be.apitizers.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import ti.vives.be.apitizers.model.Category;
+import ti.vives.be.apitizers.model.Recipe;
+import ti.vives.be.apitizers.repository.CategoryRepository;
+import ti.vives.be.apitizers.repository.IngredientRepository;
+import ti.vives.be.apitizers.repository.RecipeIngredientRepository;
+import ti.vives.be.apitizers.repository.RecipeRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// A real server port as well as MockMvc: response compression happens in Tomcat, not in the DispatcherServlet
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:content-negotiation;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+@AutoConfigureMockMvc
+class ContentNegotiationTest {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private RecipeIngredientRepository recipeIngredientRepository;
+
+    private Category category;
+    private Recipe recipe;
+
+    @BeforeEach
+    void seed() {
+        recipeIngredientRepository.deleteAllInBatch();
+        recipeRepository.deleteAllInBatch();
+        ingredientRepository.deleteAllInBatch();
+        categoryRepository.deleteAllInBatch();
+
+        category = new Category();
+        category.setName("Starters");
+        category = categoryRepository.save(category);
+        for (int i = 0; i < 20; i++) {
+            Recipe recipe = new Recipe();
+            recipe.setName("Recipe " + i);
+            recipe.setIsHealthy(true);
+            recipe.setIsFavorite(false);
+            recipe.setCategory(category);
+            // Large enough detail for compression to apply
+            recipe.setInstructions("Slice, season and serve. ".repeat(100));
+            this.recipe = recipeRepository.save(recipe);
+        }
+    }
+
+    @Test
+    void jsonStaysTheDefault() throws Exception {
+        mockMvc.perform(get("/api/categories"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void smileAndCborCarryTheSameDocumentInFewerBytes() throws Exception {
+        byte[] json = body(MediaType.APPLICATION_JSON);
+        byte[] smile = body(SMILE);
+        byte[] cbor = body(CBOR);
+
+        JsonNode expected = new ObjectMapper().readTree(json);
+        assertEquals(expected, new SmileMapper().readTree(smile));
+        assertEquals(expected, new CBORMapper().readTree(cbor));
+        assertTrue(smile.length < json.length, () -> "Smile " + smile.length + " bytes, JSON " + json.length);
+        assertTrue(cbor.length < json.length, () -> "CBOR " + cbor.length + " bytes, JSON " + json.length);
+    }
+
+    @Test
+    void responsesVaryOnAccept() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/ingredients").accept(SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(SMILE))
+                .andReturn();
+        assertTrue(result.getResponse().getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT));
+    }
+
+    @Test
+    void largeResponsesAreGzippedAndCarryAWeakETag() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/recipes?limit=20"))
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .build();
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null));
+        // Tomcat skips compression for strong ETags
+        assertTrue(response.headers().firstValue(HttpHeaders.ETAG).orElseThrow().startsWith("W/\""));
+        byte[] json;
+        try (InputStream body = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            json = body.readAllBytes();
+        }
+        assertEquals(20, new ObjectMapper().readTree(json).get("items").size());
+        assertTrue(response.body().length < json.length, () -> "gzip " + response.body().length + " bytes, JSON " + json.length);
+    }
+
+    @Test
+    void recipeDetailCarriesAStrongETagPerRepresentation() throws Exception {
+        String json = detailETag(MediaType.APPLICATION_JSON);
+        String smile = detailETag(SMILE);
+
+        assertFalse(json.startsWith("W/"), json);
+        assertFalse(smile.startsWith("W/"), smile);
+        // Different bytes, so a strong validator must differ as well
+        assertNotEquals(json, smile);
+        mockMvc.perform(get("/api/recipes/{id}", recipe.getId()).header(HttpHeaders.IF_NONE_MATCH, json))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void strongDetailETagIsServedUncompressed() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/recipes/" + recipe.getId()))
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .build();
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().length > 1024, () -> response.body().length + " bytes");
+        assertTrue(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).isEmpty());
+        assertTrue(response.headers().firstValue(HttpHeaders.ETAG).orElseThrow().startsWith("\"recipe-"));
+    }
+
+    @Test
+    void ifMatchAcceptsTheDetailETagOfAnyRepresentation() throws Exception {
+        String smile = detailETag(SMILE);
+
+        String updated = update(smile)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // The version moved on, so the tag read before the update is now stale
+        assertNotEquals(smile, updated);
+        update(smile).andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void weakETagNeverSatisfiesIfMatch() throws Exception {
+        String strong = detailETag(MediaType.APPLICATION_JSON);
+
+        update("W/" + strong).andExpect(status().isPreconditionFailed());
+        update(strong).andExpect(status().isOk());
+    }
+
+    private String detailETag(MediaType mediaType) throws Exception {
+        return mockMvc.perform(get("/api/recipes/{id}", recipe.getId()).accept(mediaType))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(mediaType))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private ResultActions update(String ifMatch) throws Exception {
+        String json = "{\"name\": \"Renamed\", \"isHealthy\": true, \"isFavorite\": false, \"categoryId\": "
+                + category.getId() + ", \"recipeIngredients\": []}";
+        return mockMvc.perform(multipart(HttpMethod.PUT, "/api/recipes/{id}", recipe.getId())
+                .file(new MockMultipartFile("recipe", "", MediaType.APPLICATION_JSON_VALUE, json.getBytes()))
+                .header(HttpHeaders.IF_MATCH, ifMatch));
+    }
+
+    private byte[] body(MediaType mediaType) throws Exception {
+        return mockMvc.perform(get("/api/recipes").accept(mediaType))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(mediaType))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+    }
+}
@@ -0,0 +1,377 @@
+package ti.vives.be.apitizers.controller;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.transaction.support.TransactionTemplate;
+import ti.vives.be.apitizers.model.Category;
+import ti.vives.be.apitizers.model.Ingredient;
+import ti.vives.be.apitizers.model.Recipe;
+import ti.vives.be.apitizers.model.RecipeIngredient;
+import ti.vives.be.apitizers.model.RecipeIngredientId;
+import ti.vives.be.apitizers.repository.CategoryRepository;
+import ti.vives.be.apitizers.repository.IngredientRepository;
+import ti.vives.be.apitizers.repository.RecipeIngredientRepository;
+import ti.vives.be.apitizers.repository.RecipeRepository;
+import ti.vives.be.apitizers.service.RecipeCacheService;
+import ti.vives.be.apitizers.support.SqlStatementCounter;
+import ti.vives.be.apitizers.support.StatementCountingConfig;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Pins the number of SQL statements every endpoint needs. A change that adds round trips (an N+1, a lazy load
+// in a loop, a lost cache) fails here; when a change legitimately needs more or fewer, update the number.
+// Unless stated otherwise the counts are for cold caches. Writes include the Cache_Change row (see CacheSyncService).
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:statement-count;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+@AutoConfigureMockMvc
+@Import(StatementCountingConfig.class)
+class StatementCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private RecipeIngredientRepository recipeIngredientRepository;
+
+    @Autowired
+    private RecipeCacheService recipeCacheService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Category starters;
+    private Ingredient garlic;
+    private Recipe bruschetta;
+
+    @BeforeEach
+    void seed() {
+        recipeIngredientRepository.deleteAllInBatch();
+        recipeRepository.deleteAllInBatch();
+        ingredientRepository.deleteAllInBatch();
+        categoryRepository.deleteAllInBatch();
+
+        // One transaction, so the recipe ingredients link managed entities
+        transactionTemplate.executeWithoutResult(status -> {
+            starters = categoryRepository.save(category("Starters"));
+            categoryRepository.save(category("Mains"));
+            Ingredient tomato = ingredientRepository.save(ingredient("Tomato"));
+            Ingredient basil = ingredientRepository.save(ingredient("Basil"));
+            garlic = ingredientRepository.save(ingredient("Garlic"));
+
+            Recipe recipe = new Recipe();
+            recipe.setName("Bruschetta");
+            recipe.setIsHealthy(true);
+            recipe.setIsFavorite(false);
+            recipe.setCategory(starters);
+            bruschetta = recipeRepository.save(recipe);
+            // Same amounts as recipePart() sends, so an update with the same ingredients leaves these rows alone
+            recipeIngredientRepository.saveAll(List.of(
+                    link(bruschetta, tomato, "2", "pcs"),
+                    link(bruschetta, basil, "2", "pcs")));
+        });
+
+        clearCaches();
+    }
+
+    // Categories
+
+    @Test
+    void listCategories() throws Exception {
+        // Collection version for the ETag, then the list
+        assertStatements(2, get("/api/categories"));
+        // Both are cached queries
+        assertStatements(0, get("/api/categories"));
+    }
+
+    @Test
+    void getCategory() throws Exception {
+        assertStatements(1, get("/api/categories/{id}", starters.getId()));
+        assertStatements(0, get("/api/categories/{id}", starters.getId()));
+    }
+
+    // Ingredients
+
+    @Test
+    void listIngredients() throws Exception {
+        assertStatements(2, get("/api/ingredients"));
+        assertStatements(0, get("/api/ingredients"));
+    }
+
+    @Test
+    void getIngredient() throws Exception {
+        assertStatements(1, get("/api/ingredients/{id}", garlic.getId()));
+        assertStatements(0, get("/api/ingredients/{id}", garlic.getId()));
+    }
+
+    @Test
+    void createIngredient() throws Exception {
+        // Name check, INSERT, change log
+        assertStatements(3, post("/api/ingredients")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\": \"Oregano\"}"));
+    }
+
+    @Test
+    void updateIngredient() throws Exception {
+        // Load, name check, recipes using it (reindexed for search), change log, UPDATE on commit
+        assertStatements(5, put("/api/ingredients/{id}", garlic.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\": \"Wild garlic\"}"));
+    }
+
+    @Test
+    void deleteIngredient() throws Exception {
+        // Exists check, load, change log, DELETE on commit
+        assertStatements(4, delete("/api/ingredients/{id}", garlic.getId()));
+    }
+
+    // Recipes
+
+    @Test
+    void listRecipes() throws Exception {
+        // Recipe and category collection versions for the ETag, then the page with the category joined
+        assertStatements(3, get("/api/recipes"));
+        // Both versions are cached, only the page is read
+        assertStatements(1, get("/api/recipes"));
+
+        // A revalidation that is still current costs nothing
+        String etag = mockMvc.perform(get("/api/recipes")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertStatements(0, get("/api/recipes").header(HttpHeaders.IF_NONE_MATCH, etag), status().isNotModified());
+
+        // A recipe change resets the recipe version
+        mockMvc.perform(patch("/api/recipes/{id}/toggle-favorite", bruschetta.getId())).andExpect(status().isOk());
+        assertStatements(2, get("/api/recipes").header(HttpHeaders.IF_NONE_MATCH, etag), status().isOk());
+    }
+
+    @Test
+    void listFavoriteRecipes() throws Exception {
+        // Same versions as the full listing, the page only holds favorites
+        assertStatements(3, get("/api/recipes").param("favorite", "true"), jsonPath("$.items.length()").value(0));
+        mockMvc.perform(patch("/api/recipes/{id}/toggle-favorite", bruschetta.getId())).andExpect(status().isOk());
+        assertStatements(2, get("/api/recipes").param("favorite", "true"), jsonPath("$.items[0].name").value("Bruschetta"));
+    }
+
+    @Test
+    void searchRecipes() throws Exception {
+        // Served from the in-memory index
+        assertStatements(0, get("/api/recipes/search").param("q", "bruschetta"));
+    }
+
+    @Test
+    void getRecipe() throws Exception {
+        // Recipe, then its category for the name
+        assertStatements(2, get("/api/recipes/{id}", bruschetta.getId()));
+        // Served from the recipe cache
+        assertStatements(0, get("/api/recipes/{id}", bruschetta.getId()));
+    }
+
+    @Test
+    void getRecipeWithIngredients() throws Exception {
+        // Recipe, category, recipe ingredients and ingredients joined in one statement, not cached
+        assertStatements(1, get("/api/recipes/{id}", bruschetta.getId()).param("expand", "ingredients"),
+                jsonPath("$.ingredients.length()").value(2));
+        assertStatements(1, get("/api/recipes/{id}", bruschetta.getId()).param("expand", "ingredients"));
+    }
+
+    @Test
+    void getMissingRecipeWithIngredients() throws Exception {
+        assertStatements(1, get("/api/recipes/{id}", bruschetta.getId() + 1000).param("expand", "ingredients"),
+                status().isNotFound());
+    }
+
+    @Test
+    void getRecipesByIds() throws Exception {
+        int missing = bruschetta.getId() + 1000;
+        String ids = missing + "," + bruschetta.getId() + "," + missing;
+        // One IN-list query for the recipes with their category, entries in request order
+        assertStatements(1, get("/api/recipes").param("ids", ids), jsonPath("$[*].found").value(contains(false, true, false)));
+        // Details already in the recipe cache are not queried again, only the missing id is
+        mockMvc.perform(get("/api/recipes/{id}", bruschetta.getId())).andExpect(status().isOk());
+        assertStatements(1, get("/api/recipes").param("ids", ids));
+        assertStatements(0, get("/api/recipes").param("ids", String.valueOf(bruschetta.getId())));
+    }
+
+    @Test
+    void getRecipesByIdsWithIngredients() throws Exception {
+        // Recipes, then the recipe ingredients of all of them with their ingredient
+        assertStatements(2, get("/api/recipes").param("ids", String.valueOf(bruschetta.getId())).param("expand", "ingredients"),
+                jsonPath("$[0].item.ingredients.length()").value(2));
+    }
+
+    @Test
+    void getRecipesByIdsInChunks() throws Exception {
+        // Past the IN-list chunk size the ids are split over two statements
+        String ids = IntStream.rangeClosed(bruschetta.getId(), bruschetta.getId() + 500)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+        assertStatements(2, get("/api/recipes").param("ids", ids), jsonPath("$.length()").value(501));
+    }
+
+    @Test
+    void createRecipe() throws Exception {
+        // Category, recipe INSERT, ingredient lookup, INSERT of the new ingredient and its change log,
+        // the recipe ingredients as one batch, change log
+        assertStatements(7, multipart("/api/recipes")
+                .file(recipePart("Caprese", "Tomato", "Oregano")));
+    }
+
+    @Test
+    void updateRecipe() throws Exception {
+        // Recipe, category, ingredient lookup, current recipe ingredients, UPDATE, change log
+        assertStatements(6, multipart(HttpMethod.PUT, "/api/recipes/{id}", bruschetta.getId())
+                .file(recipePart("Tomato bruschetta", "Tomato", "Basil")));
+    }
+
+    @Test
+    void deleteRecipe() throws Exception {
+        // Recipe, pending image uploads, recipe ingredients (cascade), change log,
+        // DELETE of the recipe ingredients as one batch, DELETE of the recipe
+        assertStatements(6, delete("/api/recipes/{id}", bruschetta.getId()));
+    }
+
+    @Test
+    void toggleFavorite() throws Exception {
+        // UPDATE and read back of the row with its category name (one UPDATE ... OUTPUT on SQL Server), change log
+        assertStatements(3, patch("/api/recipes/{id}/toggle-favorite", bruschetta.getId()),
+                jsonPath("$.isFavorite").value(true));
+    }
+
+    // Recipe ingredients
+
+    @Test
+    void listRecipeIngredients() throws Exception {
+        // Recipe, recipe ingredients and ingredient names joined in one statement
+        assertStatements(1, get("/api/recipes/{id}/ingredients", bruschetta.getId()));
+    }
+
+    @Test
+    void listRecipeIngredientsOfMissingRecipe() throws Exception {
+        // The same statement finds no rows, no separate existence check
+        assertStatements(1, get("/api/recipes/{id}/ingredients", bruschetta.getId() + 1000), status().isNotFound());
+    }
+
+    @Test
+    void addRecipeIngredient() throws Exception {
+        // Recipe, ingredient by name, existing row check, INSERT, change log
+        assertStatements(5, post("/api/recipes/{id}/ingredients", bruschetta.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ingredientName\": \"Garlic\", \"quantity\": 1, \"unit\": \"clove\"}"));
+    }
+
+    @Test
+    void reAddRecipeIngredient() throws Exception {
+        // Recipe, ingredient by name, existing row, change log, UPDATE of its amount
+        assertStatements(5, post("/api/recipes/{id}/ingredients", bruschetta.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ingredientName\": \"Tomato\", \"quantity\": 3, \"unit\": \"pcs\"}"),
+                status().isCreated());
+
+        mockMvc.perform(get("/api/recipes/{id}/ingredients", bruschetta.getId()))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[?(@.ingredientName == 'Tomato')].quantity").value(contains(3.0)));
+    }
+
+    @Test
+    void deleteRecipeIngredients() throws Exception {
+        // One bulk DELETE, change log
+        assertStatements(2, delete("/api/recipes/{id}/ingredients", bruschetta.getId()));
+    }
+
+    private void assertStatements(int expected, RequestBuilder request) throws Exception {
+        assertStatements(expected, request, status().is2xxSuccessful());
+    }
+
+    private void assertStatements(int expected, RequestBuilder request, ResultMatcher result) throws Exception {
+        List<String> statements = SqlStatementCounter.statementsDuring(() ->
+                mockMvc.perform(request).andExpect(result));
+        assertEquals(expected, statements.size(), () -> "Statements executed:\n" + String.join("\n", statements));
+    }
+
+    private void clearCaches() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        recipeCacheService.evictAll();
+    }
+
+    private MockMultipartFile recipePart(String name, String... ingredientNames) {
+        StringBuilder ingredients = new StringBuilder();
+        for (String ingredientName : ingredientNames) {
+            if (!ingredients.isEmpty()) {
+                ingredients.append(", ");
+            }
+            ingredients.append("{\"ingredientName\": \"").append(ingredientName).append("\", \"quantity\": 2, \"unit\": \"pcs\"}");
+        }
+        String json = "{\"name\": \"" + name + "\", \"isHealthy\": true, \"isFavorite\": false, "
+                + "\"categoryId\": " + starters.getId() + ", \"recipeIngredients\": [" + ingredients + "]}";
+        return new MockMultipartFile("recipe", "", MediaType.APPLICATION_JSON_VALUE, json.getBytes());
+    }
+
+    private static Category category(String name) {
+        Category category = new Category();
+        category.setName(name);
+        return category;
+    }
+
+    private static Ingredient ingredient(String name) {
+        Ingredient ingredient = new Ingredient();
+        ingredient.setName(name);
+        return ingredient;
+    }
+
+    private static RecipeIngredient link(Recipe recipe, Ingredient ingredient, String quantity, String unit) {
+        RecipeIngredientId id = new RecipeIngredientId();
+        id.setRecipeId(recipe.getId());
+        id.setIngredientId(ingredient.getId());
+
+        RecipeIngredient recipeIngredient = new RecipeIngredient();
+        recipeIngredient.setId(id);
+        recipeIngredient.setRecipe(recipe);
+        recipeIngredient.setIngredient(ingredient);
+        recipeIngredient.setQuantity(new BigDecimal(quantity));
+        recipeIngredient.setUnit(unit);
+        return recipeIngredient;
+    }
+}
@@ -0,0 +1,151 @@
+package ti.vives.be.apitizers.loadtest;
+
+import org.springframework.transaction.support.TransactionTemplate;
+import ti.vives.be.apitizers.model.Category;
+import ti.vives.be.apitizers.model.Ingredient;
+import ti.vives.be.apitizers.model.Recipe;
+import ti.vives.be.apitizers.model.RecipeIngredient;
+import ti.vives.be.apitizers.model.RecipeIngredientId;
+import ti.vives.be.apitizers.repository.CategoryRepository;
+import ti.vives.be.apitizers.repository.IngredientRepository;
+import ti.vives.be.apitizers.repository.RecipeIngredientRepository;
+import ti.vives.be.apitizers.repository.RecipeRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// Seeds a synthetic catalog through the repositories, one transaction per batch so the
+// persistence context never grows beyond a batch and Hibernate can use JDBC batching.
+class CatalogGenerator {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String[] CATEGORIES = {"Starters", "Soups", "Salads", "Mains", "Pasta", "Vegetarian",
+            "Fish", "Desserts", "Baking", "Drinks"};
+    private static final String[] UNITS = {"g", "ml", "tbsp", "tsp", "pcs", null};
+
+    private final CategoryRepository categoryRepository;
+    private final IngredientRepository ingredientRepository;
+    private final RecipeRepository recipeRepository;
+    private final RecipeIngredientRepository recipeIngredientRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Random random;
+
+    CatalogGenerator(CategoryRepository categoryRepository, IngredientRepository ingredientRepository,
+                     RecipeRepository recipeRepository, RecipeIngredientRepository recipeIngredientRepository,
+                     TransactionTemplate transactionTemplate, long seed) {
+        this.categoryRepository = categoryRepository;
+        this.ingredientRepository = ingredientRepository;
+        this.recipeRepository = recipeRepository;
+        this.recipeIngredientRepository = recipeIngredientRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.random = new Random(seed);
+    }
+
+    Catalog generate(int recipeCount, int ingredientCount, int meanIngredientsPerRecipe) {
+        List<Category> categories = new ArrayList<>();
+        for (String name : CATEGORIES) {
+            Category category = new Category();
+            category.setName(name);
+            categories.add(category);
+        }
+        categories = categoryRepository.saveAll(categories);
+
+        List<Ingredient> ingredients = new ArrayList<>(ingredientCount);
+        for (int from = 0; from < ingredientCount; from += BATCH_SIZE) {
+            int to = Math.min(from + BATCH_SIZE, ingredientCount);
+            List<Ingredient> batch = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                Ingredient ingredient = new Ingredient();
+                ingredient.setName("Ingredient " + i);
+                batch.add(ingredient);
+            }
+            ingredients.addAll(transactionTemplate.execute(status -> ingredientRepository.saveAll(batch)));
+        }
+
+        List<Category> savedCategories = categories;
+        int firstId = Integer.MAX_VALUE;
+        int lastId = 0;
+        long links = 0;
+        for (int from = 0; from < recipeCount; from += BATCH_SIZE) {
+            int size = Math.min(BATCH_SIZE, recipeCount - from);
+            int offset = from;
+            List<Recipe> recipes = transactionTemplate.execute(status -> seedRecipes(offset, size, savedCategories,
+                    ingredients, meanIngredientsPerRecipe));
+            for (Recipe recipe : recipes) {
+                firstId = Math.min(firstId, recipe.getId());
+                lastId = Math.max(lastId, recipe.getId());
+                links += recipe.getRecipeIngredients().size();
+            }
+        }
+
+        List<String> ingredientNames = ingredients.stream().map(Ingredient::getName).toList();
+        List<Integer> categoryIds = savedCategories.stream().map(Category::getId).toList();
+        return new Catalog(firstId, lastId, links, ingredientNames, categoryIds);
+    }
+
+    private List<Recipe> seedRecipes(int offset, int size, List<Category> categories, List<Ingredient> ingredients,
+                                     int meanIngredientsPerRecipe) {
+        List<Recipe> recipes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Recipe recipe = new Recipe();
+            recipe.setName("Recipe " + (offset + i));
+            recipe.setDescription("Synthetic recipe " + (offset + i) + " for load testing.");
+            recipe.setInstructions("Combine everything, season to taste and serve.");
+            recipe.setIsHealthy(random.nextInt(3) == 0);
+            recipe.setIsFavorite(random.nextInt(20) == 0);
+            recipe.setCategory(categories.get(random.nextInt(categories.size())));
+            recipes.add(recipe);
+        }
+        recipes = recipeRepository.saveAll(recipes);
+
+        List<RecipeIngredient> links = new ArrayList<>();
+        for (Recipe recipe : recipes) {
+            Set<Integer> picked = new HashSet<>();
+            int count = ingredientsPerRecipe(meanIngredientsPerRecipe, ingredients.size());
+            while (picked.size() < count) {
+                picked.add(popularIngredient(ingredients.size()));
+            }
+            for (int index : picked) {
+                RecipeIngredient recipeIngredient = link(recipe, ingredients.get(index));
+                recipe.getRecipeIngredients().add(recipeIngredient);
+                links.add(recipeIngredient);
+            }
+        }
+        recipeIngredientRepository.saveAll(links);
+        return recipes;
+    }
+
+    // Roughly normal around the mean, at least two and never more than 2.5x the mean
+    private int ingredientsPerRecipe(int mean, int available) {
+        int count = (int) Math.round(mean + random.nextGaussian() * mean / 3.0);
+        int max = Math.min(available, Math.max(2, mean * 5 / 2));
+        return Math.max(2, Math.min(count, max));
+    }
+
+    // Skewed towards the first ingredients, like salt and oil in a real catalog
+    private int popularIngredient(int available) {
+        return (int) (available * Math.pow(random.nextDouble(), 3));
+    }
+
+    private RecipeIngredient link(Recipe recipe, Ingredient ingredient) {
+        RecipeIngredientId id = new RecipeIngredientId();
+        id.setRecipeId(recipe.getId());
+        id.setIngredientId(ingredient.getId());
+
+        RecipeIngredient recipeIngredient = new RecipeIngredient();
+        recipeIngredient.setId(id);
+        recipeIngredient.setRecipe(recipe);
+        recipeIngredient.setIngredient(ingredient);
+        recipeIngredient.setQuantity(BigDecimal.valueOf(1 + random.nextInt(500)));
+        recipeIngredient.setUnit(UNITS[random.nextInt(UNITS.length)]);
+        return recipeIngredient;
+    }
+
+    record Catalog(int firstRecipeId, int lastRecipeId, long recipeIngredients, List<String> ingredientNames,
+                   List<Integer> categoryIds) {
+    }
+}
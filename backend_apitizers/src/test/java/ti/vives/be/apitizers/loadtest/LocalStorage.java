@@ -0,0 +1,77 @@
+package ti.vives.be.apitizers.loadtest;
+
+import com.google.cloud.RestorableState;
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Stand-in for the Firebase bucket: accepts every upload, counts the bytes and keeps nothing
+class LocalStorage {
+
+    private final AtomicLong uploads = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+    private final Storage storage;
+
+    LocalStorage() {
+        storage = mock(Storage.class);
+        when(storage.get(any(BlobId.class))).thenReturn(null);
+        when(storage.writer(any(BlobInfo.class))).thenAnswer(invocation -> new DiscardingWriteChannel());
+        when(storage.writer(any(BlobInfo.class), any(Storage.BlobWriteOption[].class)))
+                .thenAnswer(invocation -> new DiscardingWriteChannel());
+        when(storage.delete(any(BlobId.class))).thenReturn(true);
+    }
+
+    Storage storage() {
+        return storage;
+    }
+
+    long uploads() {
+        return uploads.get();
+    }
+
+    long storedBytes() {
+        return storedBytes.get();
+    }
+
+    private class DiscardingWriteChannel implements WriteChannel {
+        private boolean open = true;
+
+        @Override
+        public void setChunkSize(int chunkSize) {
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int count = src.remaining();
+            src.position(src.limit());
+            storedBytes.addAndGet(count);
+            return count;
+        }
+
+        @Override
+        public RestorableState<WriteChannel> capture() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            if (open) {
+                uploads.incrementAndGet();
+                open = false;
+            }
+        }
+    }
+}
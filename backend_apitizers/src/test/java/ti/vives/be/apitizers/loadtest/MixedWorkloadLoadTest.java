@@ -0,0 +1,354 @@
+package ti.vives.be.apitizers.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.transaction.support.TransactionTemplate;
+import ti.vives.be.apitizers.repository.CategoryRepository;
+import ti.vives.be.apitizers.repository.IngredientRepository;
+import ti.vives.be.apitizers.repository.RecipeIngredientRepository;
+import ti.vives.be.apitizers.repository.RecipeRepository;
+import ti.vives.be.apitizers.util.CursorUtil;
+import ti.vives.be.apitizers.util.FirebaseStorageUtil;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Seeds a synthetic catalog, replays a mix of list, detail, create-with-image, update and toggle-favorite
+// calls over HTTP, prints throughput and latency percentiles per endpoint and fails when an SLO is missed.
+// H2 in SQL Server mode stands in for SQL Server and LocalStorage for the Firebase bucket.
+// Sizes, mix and SLOs are in loadtest.properties.
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:loadtest;MODE=MSSQLServer;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+class MixedWorkloadLoadTest {
+
+    private static final Properties CONFIG = loadConfig();
+    private static final int IMAGES = 8;
+
+    enum Endpoint {
+        LIST, DETAIL, CREATE, UPDATE, TOGGLE;
+
+        String key() {
+            return name().toLowerCase();
+        }
+    }
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private RecipeIngredientRepository recipeIngredientRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @LocalServerPort
+    private int port;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LocalStorage localStorage = new LocalStorage();
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    private CatalogGenerator.Catalog catalog;
+    private List<byte[]> images;
+
+    @BeforeEach
+    void seed() throws IOException {
+        FirebaseStorageUtil.useStorage(localStorage.storage(), "loadtest-bucket");
+
+        long start = System.nanoTime();
+        catalog = new CatalogGenerator(categoryRepository, ingredientRepository, recipeRepository,
+                recipeIngredientRepository, transactionTemplate, longValue("loadtest.seed"))
+                .generate(intValue("loadtest.recipes"), intValue("loadtest.ingredients"),
+                        intValue("loadtest.ingredients-per-recipe"));
+        System.out.printf("Seeded %d recipes, %d ingredients and %d recipe ingredients in %.1f s%n",
+                catalog.lastRecipeId() - catalog.firstRecipeId() + 1, catalog.ingredientNames().size(),
+                catalog.recipeIngredients(), (System.nanoTime() - start) / 1e9);
+
+        images = new ArrayList<>();
+        for (int i = 0; i < IMAGES; i++) {
+            images.add(jpeg(i));
+        }
+    }
+
+    @AfterEach
+    void restoreStorage() {
+        FirebaseStorageUtil.useStorage(null, null);
+    }
+
+    @Test
+    void mixedWorkloadMeetsSlos() throws Exception {
+        run(Duration.parse(CONFIG.getProperty("loadtest.warmup")), null);
+
+        Map<Endpoint, Stats> stats = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new Stats());
+        }
+        Duration duration = Duration.parse(CONFIG.getProperty("loadtest.duration"));
+        double seconds = run(duration, stats);
+
+        List<String> violations = new ArrayList<>();
+        long total = 0;
+        long errors = 0;
+        System.out.printf("%-8s %9s %9s %9s %9s %9s %9s %7s %9s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "errors", "conflicts");
+        for (Map.Entry<Endpoint, Stats> entry : stats.entrySet()) {
+            Endpoint endpoint = entry.getKey();
+            Stats result = entry.getValue();
+            long[] latencies = result.sortedLatencies();
+            total += latencies.length;
+            errors += result.errors.sum();
+            System.out.printf("%-8s %9d %9.0f %9.1f %9.1f %9.1f %9.1f %7d %9d%n", endpoint.key(), latencies.length,
+                    latencies.length / seconds, percentile(latencies, 0.50), percentile(latencies, 0.95),
+                    percentile(latencies, 0.99), percentile(latencies, 1.0), result.errors.sum(),
+                    result.conflicts.sum());
+
+            String slo = CONFIG.getProperty("loadtest.slo." + endpoint.key() + ".p99-ms");
+            if (slo != null && latencies.length > 0 && percentile(latencies, 0.99) > Double.parseDouble(slo)) {
+                violations.add(String.format("%s p99 %.1f ms > %s ms", endpoint.key(), percentile(latencies, 0.99), slo));
+            }
+        }
+        double throughput = total / seconds;
+        double errorRate = total > 0 ? (double) errors / total : 0;
+        System.out.printf("total    %9d %9.0f req/s, error rate %.4f, %d images (%d bytes) uploaded%n",
+                total, throughput, errorRate, localStorage.uploads(), localStorage.storedBytes());
+
+        if (errorRate > doubleValue("loadtest.slo.max-error-rate")) {
+            violations.add(String.format("error rate %.4f > %s", errorRate, CONFIG.getProperty("loadtest.slo.max-error-rate")));
+        }
+        if (throughput < doubleValue("loadtest.slo.min-throughput")) {
+            violations.add(String.format("throughput %.0f req/s < %s", throughput, CONFIG.getProperty("loadtest.slo.min-throughput")));
+        }
+        assertTrue(violations.isEmpty(), "SLOs missed: " + String.join(", ", violations));
+    }
+
+    // Runs the clients for the given time, recording into stats unless it is null (warm-up). Returns the elapsed seconds.
+    private double run(Duration duration, Map<Endpoint, Stats> stats) throws Exception {
+        Endpoint[] mix = mix();
+        int clients = intValue("loadtest.clients");
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> results = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                results.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        Endpoint endpoint = mix[random.nextInt(mix.length)];
+                        long sent = System.nanoTime();
+                        int status;
+                        try {
+                            status = client.send(request(endpoint, random), HttpResponse.BodyHandlers.discarding()).statusCode();
+                        } catch (IOException e) {
+                            status = -1;
+                        }
+                        if (stats != null) {
+                            stats.get(endpoint).record(System.nanoTime() - sent, status);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        }
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    private HttpRequest request(Endpoint endpoint, ThreadLocalRandom random) throws IOException {
+        String base = "http://localhost:" + port + "/api/recipes";
+        return switch (endpoint) {
+            case LIST -> {
+                // Mostly the first page, otherwise a page somewhere in the catalog
+                String after = random.nextInt(4) == 0 ? "" : "&after=" + CursorUtil.encode(randomRecipeId(random, false));
+                yield HttpRequest.newBuilder(URI.create(base + "?limit=20" + after)).build();
+            }
+            case DETAIL -> HttpRequest.newBuilder(URI.create(base + "/" + randomRecipeId(random, true))).build();
+            case CREATE -> multipart(HttpRequest.newBuilder(URI.create(base)), recipeJson(random),
+                    images.get(random.nextInt(images.size())), "POST");
+            case UPDATE -> multipart(HttpRequest.newBuilder(URI.create(base + "/" + randomRecipeId(random, false))),
+                    recipeJson(random), null, "PUT");
+            case TOGGLE -> HttpRequest.newBuilder(URI.create(base + "/" + randomRecipeId(random, true) + "/toggle-favorite"))
+                    .method("PATCH", HttpRequest.BodyPublishers.noBody()).build();
+        };
+    }
+
+    // Popular recipes get most of the reads, like a front page would cause
+    private int randomRecipeId(ThreadLocalRandom random, boolean skewed) {
+        int count = catalog.lastRecipeId() - catalog.firstRecipeId() + 1;
+        double position = skewed ? Math.pow(random.nextDouble(), 4) : random.nextDouble();
+        return catalog.firstRecipeId() + (int) (position * count);
+    }
+
+    private String recipeJson(ThreadLocalRandom random) throws IOException {
+        List<Map<String, Object>> ingredients = new ArrayList<>();
+        int count = 3 + random.nextInt(8);
+        List<String> names = catalog.ingredientNames();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> ingredient = new LinkedHashMap<>();
+            ingredient.put("ingredientName", names.get((int) (names.size() * Math.pow(random.nextDouble(), 3))));
+            ingredient.put("quantity", 1 + random.nextInt(500));
+            ingredient.put("unit", "g");
+            ingredients.add(ingredient);
+        }
+        // Now and then an ingredient the catalog does not know yet
+        if (random.nextInt(10) == 0) {
+            ingredients.add(Map.of("ingredientName", "New ingredient " + UUID.randomUUID(), "quantity", 1, "unit", "pcs"));
+        }
+
+        Map<String, Object> recipe = new LinkedHashMap<>();
+        recipe.put("name", "Load test recipe " + random.nextInt(1_000_000));
+        recipe.put("description", "Created by the load test.");
+        recipe.put("instructions", "Mix and serve.");
+        recipe.put("isHealthy", random.nextBoolean());
+        recipe.put("isFavorite", false);
+        recipe.put("categoryId", catalog.categoryIds().get(random.nextInt(catalog.categoryIds().size())));
+        recipe.put("recipeIngredients", ingredients);
+        return objectMapper.writeValueAsString(recipe);
+    }
+
+    private static HttpRequest multipart(HttpRequest.Builder builder, String recipeJson, byte[] image, String method) {
+        String boundary = "loadtest-" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"recipe\"\r\n"
+                + "Content-Type: application/json\r\n\r\n"
+                + recipeJson + "\r\n").getBytes(StandardCharsets.UTF_8));
+        if (image != null) {
+            body.writeBytes(("--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"image\"; filename=\"photo.jpg\"\r\n"
+                    + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            body.writeBytes(image);
+            body.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+        body.writeBytes(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return builder.header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .method(method, HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    // A phone-camera sized photo, different per index so uploads are not deduplicated into one object
+    private static byte[] jpeg(int index) throws IOException {
+        BufferedImage image = new BufferedImage(2000, 1500, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, new Color(index * 30, 120, 60), 2000, 1500, new Color(240, 200, index * 30)));
+        graphics.fillRect(0, 0, 2000, 1500);
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    private static Endpoint[] mix() {
+        List<Endpoint> mix = new ArrayList<>();
+        for (Endpoint endpoint : Endpoint.values()) {
+            for (int i = 0; i < intValue("loadtest.mix." + endpoint.key()); i++) {
+                mix.add(endpoint);
+            }
+        }
+        return mix.toArray(Endpoint[]::new);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static Properties loadConfig() {
+        Properties properties = new Properties();
+        try (InputStream in = MixedWorkloadLoadTest.class.getResourceAsStream("/loadtest.properties")) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read loadtest.properties", e);
+        }
+        // -Dloadtest.* wins over the file
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("loadtest.")) {
+                properties.setProperty(name, System.getProperty(name));
+            }
+        }
+        return properties;
+    }
+
+    private static int intValue(String key) {
+        return Integer.parseInt(CONFIG.getProperty(key));
+    }
+
+    private static long longValue(String key) {
+        return Long.parseLong(CONFIG.getProperty(key));
+    }
+
+    private static double doubleValue(String key) {
+        return Double.parseDouble(CONFIG.getProperty(key));
+    }
+
+    private static class Stats {
+        private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder conflicts = new LongAdder();
+
+        void record(long latency, int status) {
+            latencies.add(latency);
+            if (status == 412 || status == 409) {
+                // A concurrent write won the optimistic lock, expected under this mix
+                conflicts.increment();
+            } else if (status < 200 || status >= 400) {
+                errors.increment();
+            }
+        }
+
+        long[] sortedLatencies() {
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package ti.vives.be.apitizers.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ti.vives.be.apitizers.dto.response.RecipeResponse;
+import ti.vives.be.apitizers.model.Category;
+import ti.vives.be.apitizers.model.Recipe;
+import ti.vives.be.apitizers.support.SqlStatementCounter;
+import ti.vives.be.apitizers.support.StatementCountingConfig;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs on the embedded database, and on SQL Server when DATABASE_URL points at one: that covers the
+// single UPDATE ... OUTPUT statement, which the embedded database cannot execute.
+@SpringBootTest
+@Import(StatementCountingConfig.class)
+class FavoriteToggleTest {
+
+    private static final boolean SQL_SERVER = System.getenv("DATABASE_URL") != null
+            && System.getenv("DATABASE_URL").startsWith("jdbc:sqlserver:");
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        if (SQL_SERVER) {
+            return;
+        }
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:favorite-toggle;DB_CLOSE_DELAY=-1");
+        registry.add("spring.datasource.driver-class-name", () -> "org.h2.Driver");
+        registry.add("spring.datasource.username", () -> "sa");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private Category category;
+    private Recipe recipe;
+
+    @BeforeEach
+    void createRecipe() {
+        category = new Category();
+        category.setName("Favorite toggle");
+        category = categoryRepository.save(category);
+
+        recipe = new Recipe();
+        recipe.setName("Bruschetta");
+        recipe.setDescription("Toasted bread with tomato");
+        recipe.setIsHealthy(true);
+        recipe.setIsFavorite(false);
+        recipe.setCategory(category);
+        recipe = recipeRepository.save(recipe);
+    }
+
+    @AfterEach
+    void deleteRecipe() {
+        recipeRepository.deleteById(recipe.getId());
+        categoryRepository.deleteById(category.getId());
+    }
+
+    @Test
+    void returnsTheUpdatedDetail() throws Exception {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        List<RecipeResponse> toggled = new ArrayList<>();
+
+        List<String> statements = SqlStatementCounter.statementsDuring(() ->
+                toggled.add(recipeRepository.toggleFavorite(recipe.getId(), now).orElseThrow()));
+
+        // UPDATE ... OUTPUT on SQL Server, UPDATE and a read back elsewhere
+        assertEquals(SQL_SERVER ? 1 : 2, statements.size(), () -> "Statements executed:\n" + String.join("\n", statements));
+        RecipeResponse response = toggled.get(0);
+        assertEquals(recipe.getId(), response.getId());
+        assertEquals("Bruschetta", response.getName());
+        assertEquals("Toasted bread with tomato", response.getDescription());
+        assertTrue(response.getIsHealthy());
+        assertTrue(response.getIsFavorite());
+        assertEquals("Favorite toggle", response.getCategoryName());
+        assertEquals(recipe.getVersion() + 1, response.getVersion());
+        assertEquals(now, response.getUpdatedAt());
+
+        RecipeResponse toggledBack = recipeRepository.toggleFavorite(recipe.getId(), now).orElseThrow();
+        assertEquals(false, toggledBack.getIsFavorite());
+        assertEquals(recipe.getVersion() + 2, toggledBack.getVersion());
+    }
+
+    // Without a SQL Server at hand, at least pin the shape of the statement it would run
+    @Test
+    void sqlServerStatementReturnsTheDetailFromTheUpdate() {
+        assertEquals("UPDATE r SET is_favorite = CASE WHEN r.is_favorite = :yes THEN :no ELSE :yes END, "
+                        + "version = r.version + 1, updated_at = :now "
+                        + "OUTPUT inserted.id AS id, inserted.name AS name, inserted.description AS description, "
+                        + "inserted.instructions AS instructions, inserted.is_healthy AS is_healthy, "
+                        + "inserted.is_favorite AS is_favorite, c.name AS category_name, inserted.image AS image, "
+                        + "inserted.image_card AS image_card, inserted.image_thumbnail AS image_thumbnail, "
+                        + "inserted.image_state AS image_state, inserted.version AS version, inserted.updated_at AS updated_at "
+                        + "FROM Recipe r LEFT JOIN Category c ON c.id = r.category_id WHERE r.id = :id",
+                RecipeRepositoryCustomImpl.SQL_SERVER_TOGGLE);
+    }
+
+    @Test
+    void missingRecipeIsEmpty() {
+        assertTrue(recipeRepository.toggleFavorite(recipe.getId() + 1000, Instant.now()).isEmpty());
+    }
+}
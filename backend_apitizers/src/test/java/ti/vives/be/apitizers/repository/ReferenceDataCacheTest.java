@@ -0,0 +1,128 @@
+package ti.vives.be.apitizers.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ti.vives.be.apitizers.model.Category;
+import ti.vives.be.apitizers.model.Ingredient;
+import ti.vives.be.apitizers.service.CacheSyncService;
+import ti.vives.be.apitizers.service.CategoryService;
+import ti.vives.be.apitizers.service.IngredientService;
+import ti.vives.be.apitizers.service.RecipeCacheService;
+import ti.vives.be.apitizers.service.RecipeSearchService;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Every repository call runs in its own transaction (and session), so repeats can only be
+// answered by the second-level and query caches, never by the persistence context.
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({CategoryService.class, IngredientService.class, CacheSyncService.class, RecipeCacheService.class, RecipeSearchService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReferenceDataCacheTest {
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private IngredientService ingredientService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        categoryRepository.deleteAllInBatch();
+        ingredientRepository.deleteAllInBatch();
+        categoryRepository.saveAll(List.of(category("Starters"), category("Mains"), category("Desserts")));
+        ingredientRepository.saveAll(List.of(ingredient("Tomato"), ingredient("Basil"), ingredient("Garlic")));
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void repeatedCategoryListingsDoNotQuery() {
+        assertEquals(3, categoryService.getAllCategories().size());
+        long statements = statistics.getPrepareStatementCount();
+
+        categoryService.getAllCategories();
+        categoryService.getAllCategories();
+
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getQueryCacheHitCount() >= 2);
+    }
+
+    @Test
+    void repeatedCategoryLookupsDoNotQuery() {
+        Integer id = categoryRepository.findAll().get(0).getId();
+        long statements = statistics.getPrepareStatementCount();
+
+        categoryService.getCategoryById(id);
+        categoryService.getCategoryById(id);
+
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getSecondLevelCacheHitCount() >= 2);
+    }
+
+    @Test
+    void repeatedIngredientNameLookupsDoNotQuery() {
+        assertTrue(ingredientRepository.findByName("Tomato").isPresent());
+        assertTrue(ingredientRepository.existsByName("Basil"));
+        long statements = statistics.getPrepareStatementCount();
+
+        assertTrue(ingredientRepository.findByName("Tomato").isPresent());
+        assertTrue(ingredientRepository.existsByName("Basil"));
+
+        assertEquals(statements, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void resolvingKnownIngredientsOnSaveDoesNotQuery() {
+        List<String> names = List.of("Tomato", "Basil", "Garlic");
+        assertEquals(3, ingredientService.resolveByNames(names).size());
+        long statements = statistics.getPrepareStatementCount();
+
+        assertEquals(3, ingredientService.resolveByNames(names).size());
+
+        assertEquals(statements, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void ingredientWritesInvalidateCachedQueries() {
+        assertTrue(ingredientRepository.findByName("Oregano").isEmpty());
+
+        ingredientRepository.save(ingredient("Oregano"));
+
+        assertTrue(ingredientRepository.findByName("Oregano").isPresent());
+    }
+
+    private static Category category(String name) {
+        Category category = new Category();
+        category.setName(name);
+        return category;
+    }
+
+    private static Ingredient ingredient(String name) {
+        Ingredient ingredient = new Ingredient();
+        ingredient.setName(name);
+        return ingredient;
+    }
+}
@@ -0,0 +1,196 @@
+package ti.vives.be.apitizers.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.support.TransactionTemplate;
+import ti.vives.be.apitizers.dto.request.IngredientRequest;
+import ti.vives.be.apitizers.dto.response.RecipeResponse;
+import ti.vives.be.apitizers.dto.response.RecipeSummaryResponse;
+import ti.vives.be.apitizers.model.CacheChange;
+import ti.vives.be.apitizers.model.Ingredient;
+import ti.vives.be.apitizers.model.Recipe;
+import ti.vives.be.apitizers.model.RecipeIngredient;
+import ti.vives.be.apitizers.model.RecipeIngredientId;
+import ti.vives.be.apitizers.repository.CacheChangeRepository;
+import ti.vives.be.apitizers.repository.IngredientRepository;
+import ti.vives.be.apitizers.repository.RecipeIngredientRepository;
+import ti.vives.be.apitizers.repository.RecipeRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Two "replicas" as two application contexts on one shared in-memory database
+class CacheSyncServiceTest {
+
+    // Not a @SpringBootConfiguration: @SpringBootTest classes in this package would boot it instead of the application
+    @Configuration(proxyBeanMethods = false)
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = CacheChange.class)
+    @EnableJpaRepositories(basePackageClasses = CacheChangeRepository.class)
+    @Import({CacheSyncService.class, RecipeCacheService.class, RecipeSearchService.class, IngredientService.class})
+    static class Replica {
+    }
+
+    private ConfigurableApplicationContext replicaA;
+    private ConfigurableApplicationContext replicaB;
+
+    @BeforeEach
+    void startReplicas() {
+        String database = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        replicaA = startReplica(database, "replica-a");
+        replicaB = startReplica(database, "replica-b");
+    }
+
+    @AfterEach
+    void stopReplicas() {
+        replicaB.close();
+        replicaA.close();
+    }
+
+    @Test
+    void recipeChangeOnOneReplicaEvictsTheOtherAfterAPoll() {
+        RecipeCacheService cacheB = replicaB.getBean(RecipeCacheService.class);
+        cacheB.get(1, id -> recipe(id, "Old name"));
+
+        recipeChanged(replicaA, 1);
+
+        // Not visible before the poll...
+        assertEquals("Old name", cacheB.get(1, id -> recipe(id, "New name")).getName());
+        replicaB.getBean(CacheSyncService.class).poll();
+        // ...and gone after it
+        assertEquals("New name", cacheB.get(1, id -> recipe(id, "New name")).getName());
+    }
+
+    @Test
+    void ingredientCreatedOnOneReplicaIsFoundOnTheOther() {
+        IngredientRepository ingredientsB = replicaB.getBean(IngredientRepository.class);
+        assertTrue(ingredientsB.findByName("Saffron").isEmpty()); // Now in B's query cache
+
+        replicaA.getBean(IngredientService.class).resolveByNames(List.of("Saffron"));
+        replicaB.getBean(CacheSyncService.class).poll();
+
+        assertTrue(ingredientsB.findByName("Saffron").isPresent());
+    }
+
+    @Test
+    void renamedIngredientIsSearchableOnBothReplicas() {
+        Integer recipeId = replicaA.getBean(TransactionTemplate.class).execute(status -> {
+            Ingredient ingredient = new Ingredient();
+            ingredient.setName("Scallion");
+            ingredient = replicaA.getBean(IngredientRepository.class).save(ingredient);
+            Recipe recipe = new Recipe();
+            recipe.setName("Omelette");
+            recipe.setIsHealthy(true);
+            recipe.setIsFavorite(false);
+            recipe = replicaA.getBean(RecipeRepository.class).save(recipe);
+
+            RecipeIngredientId id = new RecipeIngredientId();
+            id.setRecipeId(recipe.getId());
+            id.setIngredientId(ingredient.getId());
+            RecipeIngredient recipeIngredient = new RecipeIngredient();
+            recipeIngredient.setId(id);
+            recipeIngredient.setRecipe(recipe);
+            recipeIngredient.setIngredient(ingredient);
+            recipeIngredient.setQuantity(BigDecimal.ONE);
+            recipeIngredient.setUnit("pcs");
+            replicaA.getBean(RecipeIngredientRepository.class).save(recipeIngredient);
+            return recipe.getId();
+        });
+        replicaA.getBean(RecipeSearchService.class).reindex(List.of(recipeId));
+        replicaB.getBean(RecipeSearchService.class).reindex(List.of(recipeId));
+        Integer ingredientId = replicaA.getBean(IngredientRepository.class).findByName("Scallion").orElseThrow().getId();
+
+        IngredientRequest rename = new IngredientRequest();
+        rename.setName("Spring onion");
+        replicaA.getBean(IngredientService.class).updateIngredient(ingredientId, rename);
+
+        assertEquals(List.of(recipeId), search(replicaA, "spring onion"));
+        assertEquals(List.of(), search(replicaB, "spring onion"));
+        replicaB.getBean(CacheSyncService.class).poll();
+        assertEquals(List.of(recipeId), search(replicaB, "spring onion"));
+        assertEquals(List.of(), search(replicaB, "scallion"));
+    }
+
+    @Test
+    void changeCommittedAfterAHigherIdIsStillApplied() throws Exception {
+        RecipeCacheService cacheB = replicaB.getBean(RecipeCacheService.class);
+        CacheSyncService syncB = replicaB.getBean(CacheSyncService.class);
+        cacheB.get(1, id -> recipe(id, "Old name"));
+
+        // The first transaction takes the lower id but commits last
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> slowWrite = executor.submit(() -> replicaA.getBean(TransactionTemplate.class).executeWithoutResult(status -> {
+                replicaA.getBean(CacheSyncService.class).recipeChanged(1);
+                replicaA.getBean(CacheChangeRepository.class).flush();
+                inserted.countDown();
+                try {
+                    commit.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            inserted.await();
+
+            recipeChanged(replicaA, 2);
+            syncB.poll();
+            assertEquals("Old name", cacheB.get(1, id -> recipe(id, "New name")).getName());
+
+            commit.countDown();
+            slowWrite.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        syncB.poll();
+        assertEquals("New name", cacheB.get(1, id -> recipe(id, "New name")).getName());
+    }
+
+    private static ConfigurableApplicationContext startReplica(String database, String name) {
+        return new SpringApplicationBuilder(Replica.class)
+                .web(WebApplicationType.NONE)
+                // Arguments, so they win over application.properties
+                .run("--spring.datasource.url=" + database,
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        // Separate second-level cache regions, the JCache manager is shared within the JVM.
+                        // The prefixed regions are not in hibernate-jcache.conf, so let Hibernate create them.
+                        "--spring.jpa.properties.hibernate.cache.region_prefix=" + name,
+                        "--spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create");
+    }
+
+    private static void recipeChanged(ConfigurableApplicationContext replica, Integer recipeId) {
+        replica.getBean(TransactionTemplate.class)
+                .executeWithoutResult(status -> replica.getBean(CacheSyncService.class).recipeChanged(recipeId));
+    }
+
+    private static List<Integer> search(ConfigurableApplicationContext replica, String query) {
+        return replica.getBean(RecipeSearchService.class).search(query, 20, null).getItems().stream()
+                .map(RecipeSummaryResponse::getId)
+                .toList();
+    }
+
+    private static RecipeResponse recipe(Integer id, String name) {
+        return new RecipeResponse(id, name, null, null, false, false, null, null, null, null, null, 0, null);
+    }
+}
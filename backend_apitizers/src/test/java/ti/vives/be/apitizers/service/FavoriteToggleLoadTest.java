@@ -0,0 +1,108 @@
+package ti.vives.be.apitizers.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import ti.vives.be.apitizers.model.Category;
+import ti.vives.be.apitizers.model.Recipe;
+import ti.vives.be.apitizers.repository.CategoryRepository;
+import ti.vives.be.apitizers.repository.RecipeRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Runs against the database configured through DATABASE_URL, so on SQL Server it covers the UPDATE ... OUTPUT path.
+// Many clients hammer the same recipe; with no lost updates the final flag depends only on the toggle count.
+@Tag("benchmark")
+@SpringBootTest
+class FavoriteToggleLoadTest {
+
+    private static final int CLIENTS = 32;
+    private static final int TOGGLES_PER_CLIENT = 50;
+
+    @Autowired
+    private RecipeService recipeService;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private Category category;
+    private Recipe recipe;
+
+    @BeforeEach
+    void createRecipe() {
+        category = new Category();
+        category.setName("Load test");
+        category = categoryRepository.save(category);
+
+        recipe = new Recipe();
+        recipe.setName("Load test recipe");
+        recipe.setIsHealthy(false);
+        recipe.setIsFavorite(false);
+        recipe.setCategory(category);
+        recipe = recipeRepository.save(recipe);
+    }
+
+    @AfterEach
+    void deleteRecipe() {
+        recipeRepository.deleteById(recipe.getId());
+        categoryRepository.deleteById(category.getId());
+    }
+
+    @Test
+    void concurrentTogglesAreNotLost() throws Exception {
+        runLoad("direct");
+    }
+
+    @Nested
+    @TestPropertySource(properties = "apitizers.favorites.coalesce-window=PT0.02S")
+    class Coalesced {
+
+        @Test
+        void concurrentTogglesAreNotLost() throws Exception {
+            runLoad("coalesced");
+        }
+    }
+
+    private void runLoad(String mode) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                results.add(clients.submit(() -> {
+                    for (int j = 0; j < TOGGLES_PER_CLIENT; j++) {
+                        recipeService.toggleFavorite(recipe.getId());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            clients.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int toggles = CLIENTS * TOGGLES_PER_CLIENT;
+        System.out.printf("Favorite toggles (%s): %d by %d clients in %.2f s, %.0f toggles/s%n",
+                mode, toggles, CLIENTS, seconds, toggles / seconds);
+
+        Recipe reloaded = recipeRepository.findById(recipe.getId()).orElseThrow();
+        assertEquals(toggles % 2 == 1, reloaded.getIsFavorite());
+    }
+}
@@ -0,0 +1,86 @@
+package ti.vives.be.apitizers.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ti.vives.be.apitizers.model.ImageUpload;
+import ti.vives.be.apitizers.repository.ImageUploadRepository;
+import ti.vives.be.apitizers.repository.RecipeRepository;
+import ti.vives.be.apitizers.repository.StoredImageRepository;
+
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImageUploadServiceTest {
+
+    private static final Duration RETRY_INTERVAL = Duration.ofSeconds(30);
+
+    @TempDir
+    private Path spoolDir;
+
+    @Test
+    void saturatedProcessingPoolPostponesWithoutUsingAnAttempt() throws Exception {
+        ImageUpload upload = new ImageUpload();
+        upload.setId(1);
+        upload.setRecipeId(7);
+        upload.setSpoolPath(Files.writeString(spoolDir.resolve("upload"), "image").toString());
+        upload.setContentHash("hash");
+        upload.setAttempts(2);
+        upload.setNextAttemptAt(Instant.now());
+
+        ImageUploadRepository imageUploadRepository = mock(ImageUploadRepository.class);
+        when(imageUploadRepository.findBySpoolOwnerAndNextAttemptAtLessThanEqual(eq(InetAddress.getLocalHost().getHostName()), any()))
+                .thenReturn(List.of(upload));
+        when(imageUploadRepository.findById(1)).thenReturn(Optional.of(upload));
+
+        // Runs the upload on the calling thread; the processing pool refuses everything (full queue)
+        ExecutorService uploadExecutor = mock(ExecutorService.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(uploadExecutor).execute(any());
+        ExecutorService processingExecutor = mock(ExecutorService.class);
+        when(processingExecutor.submit(any(Callable.class))).thenThrow(new RejectedExecutionException("queue is full"));
+
+        ImageUploadService service = new ImageUploadService(imageUploadRepository,
+                mock(RecipeRepository.class), mock(StoredImageRepository.class),
+                mock(RecipeSearchService.class), mock(CacheSyncService.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                uploadExecutor, processingExecutor, spoolDir.toString(), 3, RETRY_INTERVAL, Duration.ofMinutes(30));
+
+        Instant before = Instant.now();
+        // The mocked transaction manager does not register synchronizations itself
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.retryDueUploads();
+        } finally {
+            TransactionSynchronizationManager.clear();
+        }
+
+        // One more failure would have exhausted the attempts and marked the image as failed
+        verify(imageUploadRepository, never()).delete(upload);
+        assertEquals(2, upload.getAttempts());
+        assertTrue(!upload.getNextAttemptAt().isBefore(before.plus(RETRY_INTERVAL)), () -> "next attempt at " + upload.getNextAttemptAt());
+        assertTrue(Files.exists(Path.of(upload.getSpoolPath())));
+    }
+}
@@ -0,0 +1,154 @@
+package ti.vives.be.apitizers.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+import ti.vives.be.apitizers.model.Category;
+import ti.vives.be.apitizers.model.Ingredient;
+import ti.vives.be.apitizers.model.Recipe;
+import ti.vives.be.apitizers.model.RecipeIngredient;
+import ti.vives.be.apitizers.model.RecipeIngredientId;
+import ti.vives.be.apitizers.repository.CategoryRepository;
+import ti.vives.be.apitizers.repository.IngredientRepository;
+import ti.vives.be.apitizers.repository.RecipeIngredientRepository;
+import ti.vives.be.apitizers.repository.RecipeRepository;
+import ti.vives.be.apitizers.support.SqlStatementCounter;
+import ti.vives.be.apitizers.support.StatementCountingConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:recipe-export;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+@Import(StatementCountingConfig.class)
+class RecipeExportServiceTest {
+
+    @Autowired
+    private RecipeExportService recipeExportService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private RecipeIngredientRepository recipeIngredientRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void seed() {
+        recipeIngredientRepository.deleteAllInBatch();
+        recipeRepository.deleteAllInBatch();
+        ingredientRepository.deleteAllInBatch();
+        categoryRepository.deleteAllInBatch();
+
+        // One transaction, so the recipe ingredients link managed entities
+        transactionTemplate.executeWithoutResult(status -> {
+            Category category = new Category();
+            category.setName("Starters");
+            category = categoryRepository.save(category);
+            Ingredient tomato = ingredientRepository.save(ingredient("Tomato"));
+            Ingredient basil = ingredientRepository.save(ingredient("Basil"));
+
+            Recipe bruschetta = recipeRepository.save(recipe("Bruschetta", "Toast, then top", category));
+            Recipe caprese = recipeRepository.save(recipe("Caprese", "Slice, layer, \"drizzle\"", category));
+            recipeRepository.save(recipe("Water", null, category));
+            recipeIngredientRepository.saveAll(List.of(
+                    link(bruschetta, tomato, "2", "pcs"),
+                    link(bruschetta, basil, "0.50", null),
+                    link(caprese, tomato, "3", "pcs")));
+        });
+    }
+
+    @Test
+    void exportsEveryRecipeWithItsIngredientsAsOneLine() throws Exception {
+        List<JsonNode> lines = objectMapper.readerFor(JsonNode.class)
+                .<JsonNode>readValues(export(RecipeExportService.Format.NDJSON))
+                .readAll();
+
+        assertEquals(3, lines.size());
+        assertEquals("Bruschetta", lines.get(0).get("name").asText());
+        assertEquals("Starters", lines.get(0).get("categoryName").asText());
+        assertEquals(2, lines.get(0).get("ingredients").size());
+        assertEquals(1, lines.get(1).get("ingredients").size());
+        assertEquals(0, lines.get(2).get("ingredients").size());
+    }
+
+    @Test
+    void exportsCsvWithQuotedFields() throws Exception {
+        String[] rows = export(RecipeExportService.Format.CSV).split("\n");
+
+        assertEquals(4, rows.length);
+        assertEquals("id,name,description,instructions,is_healthy,is_favorite,category,image,version,updated_at,ingredients", rows[0]);
+        assertTrue(rows[1].contains(",Bruschetta,\"Toast, then top\","));
+        // No separator or quote in the ingredients, so that field is left unquoted
+        assertTrue(rows[1].endsWith(",Tomato=2 pcs; Basil=0.5") || rows[1].endsWith(",Basil=0.5; Tomato=2 pcs"), rows[1]);
+        assertTrue(rows[2].contains(",\"Slice, layer, \"\"drizzle\"\"\","));
+        assertTrue(rows[3].endsWith(","));
+    }
+
+    @Test
+    void readsTheCatalogWithOneStatement() throws Exception {
+        List<String> statements = SqlStatementCounter.statementsDuring(() -> export(RecipeExportService.Format.NDJSON));
+        assertEquals(1, statements.size(), () -> "Statements executed:\n" + String.join("\n", statements));
+    }
+
+    private String export(RecipeExportService.Format format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        recipeExportService.export(format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Ingredient ingredient(String name) {
+        Ingredient ingredient = new Ingredient();
+        ingredient.setName(name);
+        return ingredient;
+    }
+
+    private static Recipe recipe(String name, String description, Category category) {
+        Recipe recipe = new Recipe();
+        recipe.setName(name);
+        recipe.setDescription(description);
+        recipe.setIsHealthy(true);
+        recipe.setIsFavorite(false);
+        recipe.setCategory(category);
+        return recipe;
+    }
+
+    private static RecipeIngredient link(Recipe recipe, Ingredient ingredient, String quantity, String unit) {
+        RecipeIngredientId id = new RecipeIngredientId();
+        id.setRecipeId(recipe.getId());
+        id.setIngredientId(ingredient.getId());
+
+        RecipeIngredient recipeIngredient = new RecipeIngredient();
+        recipeIngredient.setId(id);
+        recipeIngredient.setRecipe(recipe);
+        recipeIngredient.setIngredient(ingredient);
+        recipeIngredient.setQuantity(new BigDecimal(quantity));
+        recipeIngredient.setUnit(unit);
+        return recipeIngredient;
+    }
+}
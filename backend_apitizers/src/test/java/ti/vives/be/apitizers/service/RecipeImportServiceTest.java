@@ -0,0 +1,201 @@
+package ti.vives.be.apitizers.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.http.MediaType;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ti.vives.be.apitizers.model.Category;
+import ti.vives.be.apitizers.repository.CategoryRepository;
+import ti.vives.be.apitizers.repository.IngredientRepository;
+import ti.vives.be.apitizers.repository.RecipeIngredientRepository;
+import ti.vives.be.apitizers.repository.RecipeRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:recipe-import;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "apitizers.import.chunk-size=2"
+})
+@AutoConfigureMockMvc
+class RecipeImportServiceTest {
+
+    // Entities still managed by the request's EntityManager when the import handler returns
+    private static final AtomicInteger managedAfterImport = new AtomicInteger(-1);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RecipeImportService recipeImportService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private RecipeIngredientRepository recipeIngredientRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Integer categoryId;
+
+    @BeforeEach
+    void setUp() {
+        recipeIngredientRepository.deleteAllInBatch();
+        recipeRepository.deleteAllInBatch();
+        ingredientRepository.deleteAllInBatch();
+        categoryRepository.deleteAllInBatch();
+
+        Category category = new Category();
+        category.setName("Starters");
+        categoryId = categoryRepository.save(category).getId();
+    }
+
+    @Test
+    void importsValidLinesAndReportsTheOthers() throws Exception {
+        String ndjson = String.join("\n",
+                recipe("Bruschetta", categoryId, "Tomato", "Basil"),
+                "{not json",
+                recipe("Lost", categoryId + 1000, "Tomato"),
+                "",
+                recipe("Caprese", categoryId, "tomato", "Mozzarella"),
+                "{\"description\": \"No name\", \"categoryId\": " + categoryId + "}",
+                recipe("Tomato soup", categoryId, "Tomato"));
+
+        List<JsonNode> events = importLines(ndjson);
+
+        List<Long> failedLines = new ArrayList<>();
+        for (JsonNode event : events) {
+            if (event.get("type").asText().equals("error")) {
+                failedLines.add(event.get("line").asLong());
+            }
+        }
+        assertEquals(List.of(2L, 3L, 6L), failedLines);
+
+        // One progress line for the full chunk, one at the end
+        JsonNode last = events.get(events.size() - 1);
+        assertEquals("progress", last.get("type").asText());
+        assertTrue(last.get("done").asBoolean());
+        assertEquals(7, last.get("lines").asLong());
+        assertEquals(3, last.get("imported").asLong());
+        assertEquals(3, last.get("failed").asLong());
+        assertEquals(2, events.stream().filter(event -> event.get("type").asText().equals("progress")).count());
+
+        assertEquals(3, recipeRepository.count());
+        // "tomato" in the same chunk resolves to Tomato, the next chunk finds the existing row
+        assertEquals(3, ingredientRepository.count());
+        assertEquals(5, recipeIngredientRepository.count());
+    }
+
+    @Test
+    void skipsOverlongLines() throws Exception {
+        String ndjson = "x".repeat(RecipeImportService.MAX_LINE_LENGTH + 1) + "\n" + recipe("Bruschetta", categoryId, "Tomato");
+
+        List<JsonNode> events = importLines(ndjson);
+
+        assertEquals("error", events.get(0).get("type").asText());
+        assertEquals(1, events.get(0).get("line").asLong());
+        assertEquals(1, events.get(events.size() - 1).get("imported").asLong());
+    }
+
+    @Test
+    void importOverHttpDoesNotKeepRecipesManaged() throws Exception {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 21; i++) {
+            ndjson.append(recipe("Recipe " + i, categoryId, "Tomato", "Basil")).append('\n');
+        }
+
+        mockMvc.perform(post("/api/recipes/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjson.toString()))
+                .andExpect(status().isOk());
+
+        assertEquals(21, recipeRepository.count());
+        // Open-in-view shares one EntityManager across all chunks; each chunk must leave it empty
+        assertEquals(0, managedAfterImport.get());
+    }
+
+    private List<JsonNode> importLines(String ndjson) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        recipeImportService.importRecipes(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), out);
+
+        List<JsonNode> events = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            events.add(objectMapper.readTree(line));
+        }
+        return events;
+    }
+
+    private static String recipe(String name, Integer categoryId, String... ingredientNames) {
+        StringBuilder ingredients = new StringBuilder();
+        for (String ingredientName : ingredientNames) {
+            if (!ingredients.isEmpty()) {
+                ingredients.append(", ");
+            }
+            ingredients.append("{\"ingredientName\": \"").append(ingredientName).append("\", \"quantity\": 1, \"unit\": \"pcs\"}");
+        }
+        return "{\"name\": \"" + name + "\", \"description\": \"Imported\", \"categoryId\": " + categoryId
+                + ", \"recipeIngredients\": [" + ingredients + "]}";
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class ManagedEntityProbe implements WebMvcConfigurer {
+
+        private final EntityManagerFactory entityManagerFactory;
+
+        ManagedEntityProbe(EntityManagerFactory entityManagerFactory) {
+            this.entityManagerFactory = entityManagerFactory;
+        }
+
+        // postHandle runs before open-in-view closes the request's EntityManager
+        @Override
+        public void addInterceptors(InterceptorRegistry registry) {
+            registry.addInterceptor(new HandlerInterceptor() {
+                @Override
+                public void postHandle(HttpServletRequest request, HttpServletResponse response,
+                                       Object handler, ModelAndView modelAndView) {
+                    EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+                    if (entityManager != null) {
+                        managedAfterImport.set(entityManager.unwrap(SessionImplementor.class)
+                                .getPersistenceContext().getNumberOfManagedEntities());
+                    }
+                }
+            }).addPathPatterns("/api/recipes/import");
+        }
+    }
+}
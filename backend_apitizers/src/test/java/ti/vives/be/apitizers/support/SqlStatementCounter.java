@@ -0,0 +1,40 @@
+package ti.vives.be.apitizers.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Collects the SQL statements prepared while an action runs. The recording is inherited by threads started
+// during the action (e.g. the virtual thread that loads a recipe detail into the cache), but not by scheduled
+// jobs that happen to run at the same time.
+public final class SqlStatementCounter {
+
+    private static final InheritableThreadLocal<List<String>> RECORDING = new InheritableThreadLocal<>();
+
+    private SqlStatementCounter() {
+    }
+
+    public static List<String> statementsDuring(Action action) throws Exception {
+        List<String> statements = Collections.synchronizedList(new ArrayList<>());
+        RECORDING.set(statements);
+        try {
+            action.run();
+        } finally {
+            RECORDING.remove();
+        }
+        synchronized (statements) {
+            return List.copyOf(statements);
+        }
+    }
+
+    static void prepared(String sql) {
+        List<String> statements = RECORDING.get();
+        if (statements != null) {
+            statements.add(sql);
+        }
+    }
+
+    public interface Action {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,26 @@
+package ti.vives.be.apitizers.support;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+
+// Import into a test to count statements with SqlStatementCounter
+@TestConfiguration
+public class StatementCountingConfig {
+
+    // Static so the post processor does not force early initialization of this configuration class
+    @Bean
+    public static BeanPostProcessor statementCounter() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof StatementCountingDataSource) {
+                    return bean;
+                }
+                return new StatementCountingDataSource(dataSource);
+            }
+        };
+    }
+}
@@ -0,0 +1,207 @@
+package ti.vives.be.apitizers.util;
+
+import com.google.cloud.RestorableState;
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageException;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FirebaseStorageUtilTest {
+
+    private static final long IMAGE_SIZE = 20L * 1024 * 1024;
+    private static final int UPLOADS = 32;
+    private static final int CONCURRENCY = 16;
+
+    // Comfortably above one chunk plus one copy buffer, far below the image size
+    private static final long MAX_ALLOCATED_PER_UPLOAD = 2L * 1024 * 1024;
+
+    @Test
+    void concurrentLargeUploadsKeepHeapBounded() throws Exception {
+        AtomicLong storedBytes = new AtomicLong();
+        Storage storage = mock(Storage.class);
+        when(storage.writer(any(BlobInfo.class), any(Storage.BlobWriteOption[].class)))
+                .thenAnswer(invocation -> new LocalWriteChannel(storedBytes));
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+        try {
+            List<Future<Long>> allocations = new ArrayList<>();
+            for (int i = 0; i < UPLOADS; i++) {
+                String name = "recipes/image-" + i + ".jpg";
+                allocations.add(executor.submit(() -> {
+                    long before = threads.getCurrentThreadAllocatedBytes();
+                    FirebaseStorageUtil.uploadFileIfAbsent(storage, "test-bucket", new GeneratedInputStream(IMAGE_SIZE),
+                            "image/jpeg", name);
+                    return threads.getCurrentThreadAllocatedBytes() - before;
+                }));
+            }
+
+            for (Future<Long> allocation : allocations) {
+                long allocated = allocation.get();
+                assertTrue(allocated < MAX_ALLOCATED_PER_UPLOAD,
+                        "Upload allocated " + allocated + " bytes for a " + IMAGE_SIZE + " byte image");
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(UPLOADS * IMAGE_SIZE, storedBytes.get());
+    }
+
+    @Test
+    void existingObjectIsReusedWithoutUploading() throws Exception {
+        Storage storage = mock(Storage.class);
+        Blob existing = blob(Map.of("firebaseStorageDownloadTokens", "token-1,token-2"));
+        when(storage.get(BlobId.of("test-bucket", "recipes/abc"))).thenReturn(existing);
+
+        String url = FirebaseStorageUtil.uploadFileIfAbsent(storage, "test-bucket", new GeneratedInputStream(10),
+                "image/jpeg", "recipes/abc");
+
+        assertEquals("https://firebasestorage.googleapis.com/v0/b/test-bucket/o/recipes%2Fabc?alt=media&token=token-1", url);
+        verify(storage, never()).writer(any(BlobInfo.class), any(Storage.BlobWriteOption[].class));
+    }
+
+    @Test
+    void lostCreateRaceReturnsTheWinnersToken() throws Exception {
+        Storage storage = mock(Storage.class);
+        Blob winner = blob(Map.of("firebaseStorageDownloadTokens", "winner"));
+        when(storage.get(BlobId.of("test-bucket", "recipes/abc"))).thenReturn(null, winner);
+        when(storage.writer(any(BlobInfo.class), any(Storage.BlobWriteOption[].class)))
+                .thenThrow(new StorageException(412, "Precondition Failed"));
+
+        String url = FirebaseStorageUtil.uploadFileIfAbsent(storage, "test-bucket", new GeneratedInputStream(10),
+                "image/jpeg", "recipes/abc");
+
+        assertTrue(url.endsWith("&token=winner"), url);
+    }
+
+    @Test
+    void existingObjectWithoutTokenGetsOne() throws Exception {
+        Storage storage = mock(Storage.class);
+        // Deep stubs so toBuilder().setMetadata(...).build() yields a blob to update
+        Blob existing = mock(Blob.class, RETURNS_DEEP_STUBS);
+        when(existing.getMetadata()).thenReturn(null);
+        when(storage.get(BlobId.of("test-bucket", "recipes/abc"))).thenReturn(existing);
+
+        String url = FirebaseStorageUtil.uploadFileIfAbsent(storage, "test-bucket", new GeneratedInputStream(10),
+                "image/jpeg", "recipes/abc");
+
+        verify(storage).update(any(BlobInfo.class));
+        assertTrue(url.contains("&token="), url);
+    }
+
+    private static Blob blob(Map<String, String> metadata) {
+        Blob blob = mock(Blob.class);
+        when(blob.getMetadata()).thenReturn(metadata);
+        return blob;
+    }
+
+    // Produces image-sized content without ever holding it in memory
+    private static class GeneratedInputStream extends InputStream {
+        private long remaining;
+
+        GeneratedInputStream(long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            if (remaining <= 0) {
+                return -1;
+            }
+            remaining--;
+            return (int) (remaining & 0xFF);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int count = (int) Math.min(len, remaining);
+            for (int i = 0; i < count; i++) {
+                b[off + i] = (byte) (remaining - i);
+            }
+            remaining -= count;
+            return count;
+        }
+    }
+
+    // Stand-in for the resumable upload channel: buffers one chunk like the real client and drops it when full
+    private static class LocalWriteChannel implements WriteChannel {
+        private final AtomicLong storedBytes;
+        private ByteBuffer chunk = ByteBuffer.allocate(FirebaseStorageUtil.CHUNK_SIZE);
+        private boolean open = true;
+
+        LocalWriteChannel(AtomicLong storedBytes) {
+            this.storedBytes = storedBytes;
+        }
+
+        @Override
+        public void setChunkSize(int chunkSize) {
+            if (chunk.capacity() != chunkSize) {
+                chunk = ByteBuffer.allocate(chunkSize);
+            }
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int written = 0;
+            while (src.hasRemaining()) {
+                if (!chunk.hasRemaining()) {
+                    flushChunk();
+                }
+                int count = Math.min(src.remaining(), chunk.remaining());
+                ByteBuffer slice = src.slice().limit(count);
+                chunk.put(slice);
+                src.position(src.position() + count);
+                written += count;
+            }
+            return written;
+        }
+
+        private void flushChunk() {
+            storedBytes.addAndGet(chunk.position());
+            chunk.clear();
+        }
+
+        @Override
+        public RestorableState<WriteChannel> capture() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            flushChunk();
+            open = false;
+        }
+    }
+}
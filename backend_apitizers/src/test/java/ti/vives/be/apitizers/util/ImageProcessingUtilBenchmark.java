@@ -0,0 +1,74 @@
+package ti.vives.be.apitizers.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Excluded from the default build, run with: mvn test -DexcludedGroups= -Dgroups=benchmark
+@Tag("benchmark")
+class ImageProcessingUtilBenchmark {
+
+    private static final int WARMUP_IMAGES = 20;
+    private static final int MEASURED_IMAGES = 100;
+
+    @Test
+    void variantThroughput(@TempDir Path tempDir) throws Exception {
+        // A 12 MP photo-like source, the typical phone upload
+        Path source = tempDir.resolve("source.jpg");
+        ImageIO.write(syntheticPhoto(4000, 3000), "jpg", source.toFile());
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            run(executor, source, WARMUP_IMAGES);
+
+            long start = System.nanoTime();
+            run(executor, source, MEASURED_IMAGES);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+            System.out.printf("Image variants: %d images on %d threads in %.2f s = %.1f images/sec%n",
+                    MEASURED_IMAGES, threads, seconds, MEASURED_IMAGES / seconds);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void run(ExecutorService executor, Path source, int images) throws Exception {
+        List<Future<Map<ImageProcessingUtil.Variant, byte[]>>> results = new ArrayList<>();
+        for (int i = 0; i < images; i++) {
+            results.add(executor.submit(() -> ImageProcessingUtil.createVariants(source)));
+        }
+        for (Future<Map<ImageProcessingUtil.Variant, byte[]>> result : results) {
+            assertEquals(ImageProcessingUtil.Variant.values().length, result.get().size());
+        }
+    }
+
+    private static BufferedImage syntheticPhoto(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setPaint(new GradientPaint(0, 0, Color.ORANGE, width, height, Color.DARK_GRAY));
+            graphics.fillRect(0, 0, width, height);
+            for (int i = 0; i < 200; i++) {
+                graphics.setColor(new Color((i * 37) % 256, (i * 91) % 256, (i * 53) % 256));
+                graphics.fillOval((i * 149) % width, (i * 83) % height, 120, 90);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+}
@@ -0,0 +1,85 @@
+package ti.vives.be.apitizers.benchmark;
+
+import ti.vives.be.apitizers.dto.response.RecipeResponse;
+import ti.vives.be.apitizers.dto.response.RecipeSummaryResponse;
+import ti.vives.be.apitizers.model.Category;
+import ti.vives.be.apitizers.model.ImageState;
+import ti.vives.be.apitizers.model.Recipe;
+import ti.vives.be.apitizers.service.RecipeService;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// Realistically sized test data, shared by the benchmarks
+final class BenchmarkData {
+
+    private static final String DESCRIPTION = "A simple weeknight dish with fresh tomatoes, garlic and basil. "
+            .repeat(4);
+    private static final String INSTRUCTIONS = "Chop the vegetables, heat the oil, cook until golden and season to taste.\n"
+            .repeat(10);
+    private static final String IMAGE_URL = "https://firebasestorage.googleapis.com/v0/b/apitizers.appspot.com/o/"
+            + "recipes%2F3f5e1c0a9d7b4e2f8c6a1b0d9e8f7a6b5c4d3e2f1a0b9c8d7e6f5a4b3c2d1e0f_full.jpg"
+            + "?alt=media&token=6f1c2d3e-4b5a-6978-8a9b-0c1d2e3f4a5b";
+
+    private BenchmarkData() {
+    }
+
+    static Recipe recipe(int id) {
+        Category category = new Category();
+        category.setId(1);
+        category.setName("Mains");
+
+        Recipe recipe = new Recipe();
+        recipe.setId(id);
+        recipe.setName("Recipe " + id);
+        recipe.setDescription(DESCRIPTION);
+        recipe.setInstructions(INSTRUCTIONS);
+        recipe.setIsHealthy(id % 2 == 0);
+        recipe.setIsFavorite(id % 3 == 0);
+        recipe.setCategory(category);
+        recipe.setImage(IMAGE_URL);
+        recipe.setImageCard(IMAGE_URL.replace("_full", "_card"));
+        recipe.setImageThumbnail(IMAGE_URL.replace("_full", "_thumb"));
+        recipe.setImageState(ImageState.READY);
+        recipe.setVersion(3);
+        recipe.setUpdatedAt(Instant.parse("2024-11-05T10:15:30Z"));
+        return recipe;
+    }
+
+    static List<RecipeResponse> recipeResponses(int size) {
+        List<RecipeResponse> responses = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            responses.add(RecipeService.mapToResponse(recipe(i)));
+        }
+        return responses;
+    }
+
+    static List<RecipeSummaryResponse> recipeSummaries(int size) {
+        List<RecipeSummaryResponse> summaries = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            Recipe recipe = recipe(i);
+            summaries.add(new RecipeSummaryResponse(recipe.getId(), recipe.getName(), recipe.getIsHealthy(),
+                    recipe.getIsFavorite(), recipe.getCategory().getName(), recipe.getImageThumbnail()));
+        }
+        return summaries;
+    }
+
+    // The "recipe" part of the multipart request the app sends to POST/PUT /api/recipes
+    static String recipeRequestJson(int ingredients) {
+        StringBuilder json = new StringBuilder()
+                .append("{\"name\":\"Pasta al pomodoro\",")
+                .append("\"description\":\"").append(DESCRIPTION).append("\",")
+                .append("\"instructions\":\"").append(INSTRUCTIONS.replace("\n", "\\n")).append("\",")
+                .append("\"isHealthy\":true,\"isFavorite\":false,\"categoryId\":1,")
+                .append("\"recipeIngredients\":[");
+        for (int i = 0; i < ingredients; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"ingredientId\":null,\"ingredientName\":\"Ingredient ").append(i)
+                    .append("\",\"quantity\":").append(i + 0.5).append(",\"unit\":\"g\"}");
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -0,0 +1,97 @@
+package ti.vives.be.apitizers.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+// Runs the benchmarks (accepts the usual JMH arguments) and always writes JSON results.
+//   java -jar target/benchmarks.jar                        -> target/jmh-result.json
+//   java -Dbaseline=previous.json -jar target/benchmarks.jar -> also fails when a score got worse by more than
+//                                                              -Dthreshold (default 0.10) beyond the error margins
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        Path result = Path.of(System.getProperty("result", "target/jmh-result.json"));
+        Files.createDirectories(result.toAbsolutePath().getParent());
+
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString())
+                .build();
+        new Runner(options).run();
+
+        String baseline = System.getProperty("baseline");
+        if (baseline != null) {
+            double threshold = Double.parseDouble(System.getProperty("threshold", "0.10"));
+            int regressions = compare(Path.of(baseline), result, threshold);
+            if (regressions > 0) {
+                System.out.println(regressions + " benchmark(s) regressed more than " + (int) (threshold * 100) + "%");
+                System.exit(1);
+            }
+        }
+    }
+
+    static int compare(Path baselineFile, Path currentFile, double threshold) throws IOException {
+        Map<String, JsonNode> baseline = readScores(baselineFile);
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : readScores(currentFile).entrySet()) {
+            JsonNode previous = baseline.get(entry.getKey());
+            if (previous == null) {
+                continue; // New benchmark, nothing to compare with
+            }
+            JsonNode current = entry.getValue();
+            double before = previous.path("primaryMetric").path("score").asDouble();
+            double after = current.path("primaryMetric").path("score").asDouble();
+            double margin = previous.path("primaryMetric").path("scoreError").asDouble(0)
+                    + current.path("primaryMetric").path("scoreError").asDouble(0);
+
+            // Throughput: higher is better; time based modes: lower is better
+            boolean higherIsBetter = "thrpt".equals(current.path("mode").asText());
+            double worsening = higherIsBetter ? before - after : after - before;
+            double change = before == 0 ? 0 : worsening / before;
+            boolean regressed = change > threshold && worsening > margin;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-9s %-80s %12.3f -> %12.3f %s (%+.1f%%)%n", regressed ? "REGRESSED" : "ok",
+                    entry.getKey(), before, after, current.path("primaryMetric").path("scoreUnit").asText(),
+                    (higherIsBetter ? -change : change) * 100);
+        }
+        return regressions;
+    }
+
+    // Keyed by benchmark method plus parameters, e.g. "...JsonSerializationBenchmark.summaryPage{size=100}"
+    private static Map<String, JsonNode> readScores(Path file) throws IOException {
+        Map<String, JsonNode> scores = new HashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+            JsonNode params = run.path("params");
+            if (params.isObject()) {
+                key.append('{');
+                Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    key.append(field.getKey()).append('=').append(field.getValue().asText());
+                    if (fields.hasNext()) {
+                        key.append(',');
+                    }
+                }
+                key.append('}');
+            }
+            scores.put(key.toString(), run);
+        }
+        return scores;
+    }
+}
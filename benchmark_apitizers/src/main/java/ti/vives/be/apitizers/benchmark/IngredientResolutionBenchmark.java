@@ -0,0 +1,72 @@
+package ti.vives.be.apitizers.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ti.vives.be.apitizers.ApitizersApplication;
+import ti.vives.be.apitizers.model.Ingredient;
+import ti.vives.be.apitizers.service.IngredientService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// IngredientService.resolveByNames as called from createRecipe, against the full application
+// context on an embedded H2 database (with the production cache configuration).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngredientResolutionBenchmark {
+
+    private static final int INGREDIENTS_PER_RECIPE = 10;
+
+    private ConfigurableApplicationContext context;
+    private IngredientService ingredientService;
+    private List<String> existingNames;
+    private int nextNewName;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(ApitizersApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:ingredient-benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        // Keep background sweeps out of the measurements
+                        "--apitizers.cache-sync.poll-interval=PT1H",
+                        "--apitizers.images.retry-interval=PT1H");
+        ingredientService = context.getBean(IngredientService.class);
+
+        existingNames = new ArrayList<>();
+        for (int i = 0; i < INGREDIENTS_PER_RECIPE; i++) {
+            existingNames.add("Existing ingredient " + i);
+        }
+        ingredientService.resolveByNames(existingNames);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public Map<String, Ingredient> existingIngredients() {
+        return ingredientService.resolveByNames(existingNames);
+    }
+
+    // Half of the names are new on every call, so each call also inserts
+    @Benchmark
+    public Map<String, Ingredient> halfNewIngredients() {
+        List<String> names = new ArrayList<>(existingNames.subList(0, INGREDIENTS_PER_RECIPE / 2));
+        for (int i = 0; i < INGREDIENTS_PER_RECIPE / 2; i++) {
+            names.add("New ingredient " + nextNewName++);
+        }
+        return ingredientService.resolveByNames(names);
+    }
+}
@@ -0,0 +1,50 @@
+package ti.vives.be.apitizers.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.*;
+import ti.vives.be.apitizers.dto.response.PageResponse;
+import ti.vives.be.apitizers.dto.response.RecipeResponse;
+import ti.vives.be.apitizers.dto.response.RecipeSummaryResponse;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Writing the response bodies of the list and detail endpoints, with the mapper configured like Spring Boot's
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private PageResponse<RecipeSummaryResponse> summaryPage;
+    private List<RecipeResponse> recipes;
+
+    @Setup
+    public void setUp() {
+        objectMapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        summaryPage = new PageResponse<>(BenchmarkData.recipeSummaries(size), "aWQ6MTAw");
+        recipes = BenchmarkData.recipeResponses(size);
+    }
+
+    @Benchmark
+    public byte[] summaryPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(summaryPage);
+    }
+
+    @Benchmark
+    public byte[] recipeDetails() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(recipes);
+    }
+}
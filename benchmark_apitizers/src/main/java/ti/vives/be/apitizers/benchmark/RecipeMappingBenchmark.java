@@ -0,0 +1,30 @@
+package ti.vives.be.apitizers.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ti.vives.be.apitizers.dto.response.RecipeResponse;
+import ti.vives.be.apitizers.model.Recipe;
+import ti.vives.be.apitizers.service.RecipeService;
+
+import java.util.concurrent.TimeUnit;
+
+// Entity to RecipeResponse, done for every recipe detail that misses the cache
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecipeMappingBenchmark {
+
+    private Recipe recipe;
+
+    @Setup
+    public void setUp() {
+        recipe = BenchmarkData.recipe(42);
+    }
+
+    @Benchmark
+    public RecipeResponse mapToResponse() {
+        return RecipeService.mapToResponse(recipe);
+    }
+}
@@ -0,0 +1,42 @@
+package ti.vives.be.apitizers.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import ti.vives.be.apitizers.dto.request.RecipeRequest;
+
+import java.util.concurrent.TimeUnit;
+
+// RecipeController parses the multipart "recipe" part with a new ObjectMapper per request;
+// the shared mapper variant shows what that costs.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecipeRequestParsingBenchmark {
+
+    @Param({"0", "10", "50"})
+    public int ingredients;
+
+    private String json;
+    private ObjectMapper sharedMapper;
+
+    @Setup
+    public void setUp() {
+        json = BenchmarkData.recipeRequestJson(ingredients);
+        sharedMapper = new ObjectMapper();
+    }
+
+    @Benchmark
+    public RecipeRequest newMapperPerRequest() throws JsonProcessingException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        return objectMapper.readValue(json, RecipeRequest.class);
+    }
+
+    @Benchmark
+    public RecipeRequest sharedMapper() throws JsonProcessingException {
+        return sharedMapper.readValue(json, RecipeRequest.class);
+    }
+}
@@ -0,0 +1,73 @@
+package ti.vives.be.apitizers.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.openjdk.jmh.annotations.*;
+import ti.vives.be.apitizers.dto.response.RecipeResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// CPU cost of writing a RecipeResponse list in every encoding the API can send, mappers configured like the
+// application's. Only the encoding is timed; that each encoding is smaller than plain JSON is checked by
+// ContentNegotiationTest in the back-end.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseEncodingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    @Param({"json", "json-gzip", "smile", "smile-gzip", "cbor"})
+    public String encoding;
+
+    private ObjectMapper objectMapper;
+    private boolean gzip;
+    private List<RecipeResponse> recipes;
+
+    @Setup
+    public void setUp() {
+        objectMapper = switch (encoding) {
+            case "json", "json-gzip" -> JsonMapper.builder().findAndAddModules()
+                    .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+            case "smile", "smile-gzip" -> SmileMapper.builder(SmileFactory.builder()
+                            .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build())
+                    .findAndAddModules()
+                    .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+            case "cbor" -> CBORMapper.builder().findAndAddModules()
+                    .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+            default -> throw new IllegalArgumentException("Unknown encoding " + encoding);
+        };
+        gzip = encoding.endsWith("-gzip");
+        recipes = BenchmarkData.recipeResponses(size);
+    }
+
+    @Benchmark
+    public byte[] recipeDetails() throws IOException {
+        return encode();
+    }
+
+    // Gzip at the default level, as Tomcat's response compression uses
+    private byte[] encode() throws IOException {
+        if (!gzip) {
+            return objectMapper.writeValueAsBytes(recipes);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream compressed = new GZIPOutputStream(out)) {
+            objectMapper.writeValue(compressed, recipes);
+        }
+        return out.toByteArray();
+    }
+}
@@ -1,4 +1,4 @@
-import React, { useState, useContext, useCallback } from 'react';
+import React, { useState, useContext, useCallback, useRef } from 'react';
 import {
   View,
   Text,
@@ -9,7 +9,7 @@ import {
   Pressable,
 } from 'react-native';
 import Icon from 'react-native-vector-icons/FontAwesome';
-import { fetchRecipes } from '../services/api';
+import { fetchRecipePage } from '../services/api';
 import { useProfile } from '../contexts/ProfileContext';
 import { useFocusEffect } from '@react-navigation/native';
 import { ThemeContext } from '../contexts/ThemeContext';
@@ -17,6 +17,8 @@ import RecipeCard from '../components/RecipeCard';
 
 export default function MyRecipesScreen({ navigation }) {
   const [favorites, setFavorites] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const isLoadingMore = useRef(false);
   const { profile } = useProfile();
   const { theme } = useContext(ThemeContext);
 
@@ -30,18 +32,33 @@ export default function MyRecipesScreen({ navigation }) {
 
   const styles = createStyles(theme);
 
+  // The server filters on favorites, one page at a time as the list is scrolled
   const loadFavorites = async () => {
     try {
-      const fetchedRecipes = await fetchRecipes();
-      const favoriteRecipes = fetchedRecipes.filter(
-        (recipe) => recipe.isFavorite
-      );
-      setFavorites(favoriteRecipes);
+      const page = await fetchRecipePage(null, 20, true);
+      setFavorites(page.items);
+      setNextCursor(page.nextCursor);
     } catch (error) {
       console.error('Error fetching recipes:', error);
     }
   };
 
+  const loadMoreFavorites = async () => {
+    if (!nextCursor || isLoadingMore.current) {
+      return;
+    }
+    isLoadingMore.current = true;
+    try {
+      const page = await fetchRecipePage(nextCursor, 20, true);
+      setFavorites((loaded) => [...loaded, ...page.items]);
+      setNextCursor(page.nextCursor);
+    } catch (error) {
+      console.error('Error fetching recipes:', error);
+    } finally {
+      isLoadingMore.current = false;
+    }
+  };
+
   useFocusEffect(
     useCallback(() => {
       loadFavorites();
@@ -132,6 +149,8 @@ export default function MyRecipesScreen({ navigation }) {
         accessibilityLabel='List of liked recipes'
         accessibilityHint='Swipe through the list to see your liked recipes'
         showsVerticalScrollIndicator={false}
+        onEndReached={loadMoreFavorites}
+        onEndReachedThreshold={0.5}
       />
     </View>
   );
@@ -1,4 +1,4 @@
-import React, { useContext, useState, useEffect } from 'react';
+import React, { useContext, useState, useRef } from 'react';
 import {
   View,
   Text,
@@ -9,7 +9,7 @@ import {
   Pressable,
 } from 'react-native';
 import Icon from 'react-native-vector-icons/Feather';
-import { fetchRecipes, fetchCategories } from '../services/api';
+import { fetchRecipePage, searchRecipes, fetchCategories } from '../services/api';
 import { ThemeContext } from '../contexts/ThemeContext';
 import RecipeCard from '../components/RecipeCard';
 import { useFocusEffect } from '@react-navigation/native';
@@ -17,7 +17,7 @@ import { useFocusEffect } from '@react-navigation/native';
 export default function OverviewScreen({ navigation }) {
   const { theme } = useContext(ThemeContext);
   const [recipes, setRecipes] = useState([]);
-  const [filteredRecipes, setFilteredRecipes] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
   const [searchQuery, setSearchQuery] = useState('');
   const [categories, setCategories] = useState([]);
   const [selectedCategory, setSelectedCategory] = useState(null);
@@ -38,15 +38,53 @@ export default function OverviewScreen({ navigation }) {
   const itemWidth =
     (availableWidth - (numColumns - 1) * horizontalSpacing) / numColumns;
 
+  // Query the loaded pages belong to, so a response for an older query is dropped
+  const currentQuery = useRef('');
+  const isLoadingMore = useRef(false);
+
+  // Only the first page is fetched up front, the rest follows as the list is scrolled
+  const loadPage = (query, after) =>
+    query.trim() === '' ? fetchRecipePage(after) : searchRecipes(query, after);
+
+  const loadFirstPage = async (query) => {
+    currentQuery.current = query;
+    try {
+      const page = await loadPage(query, null);
+      if (currentQuery.current === query) {
+        setRecipes(page.items);
+        setNextCursor(page.nextCursor);
+      }
+    } catch (error) {
+      console.error('Error fetching recipes:', error);
+    }
+  };
+
+  const loadMore = async () => {
+    if (!nextCursor || isLoadingMore.current) {
+      return;
+    }
+    const query = currentQuery.current;
+    isLoadingMore.current = true;
+    try {
+      const page = await loadPage(query, nextCursor);
+      if (currentQuery.current === query) {
+        setRecipes((loaded) => [...loaded, ...page.items]);
+        setNextCursor(page.nextCursor);
+      }
+    } catch (error) {
+      console.error('Error fetching recipes:', error);
+    } finally {
+      isLoadingMore.current = false;
+    }
+  };
+
   useFocusEffect(
     React.useCallback(() => {
       const loadInitialData = async () => {
         try {
-          const fetchedRecipes = await fetchRecipes();
+          await loadFirstPage(currentQuery.current);
           const fetchedCategories = await fetchCategories();
 
-          setRecipes(fetchedRecipes);
-          // setFilteredRecipes(fetchedRecipes);
           setCategories(
             fetchedCategories.map((category) => ({
               id: category.id,
@@ -62,54 +100,22 @@ export default function OverviewScreen({ navigation }) {
     }, [])
   );
 
-  useEffect(() => {
-    handleSearch(searchQuery);
-  }, [recipes]);
-
+  // Searching goes to the server's index, the loaded pages no longer hold every recipe
   const handleSearch = (query) => {
     setSearchQuery(query);
-
-    const baseRecipes =
-      selectedCategory === null
-        ? recipes
-        : recipes.filter((recipe) => recipe.categoryName === selectedCategory);
-
-    if (query === '') {
-      setFilteredRecipes(baseRecipes);
-    } else {
-      const filtered = baseRecipes.filter((recipe) =>
-        recipe.name.toLowerCase().includes(query.toLowerCase())
-      );
-      setFilteredRecipes(filtered);
-    }
+    loadFirstPage(query);
   };
 
   const handleCategorySelect = (categoryName) => {
-    if (categoryName === selectedCategory) {
-      setSelectedCategory(null);
-      setFilteredRecipes(
-        searchQuery === ''
-          ? recipes
-          : recipes.filter((recipe) =>
-              recipe.name.toLowerCase().includes(searchQuery.toLowerCase())
-            )
-      );
-    } else {
-      setSelectedCategory(categoryName);
-      const filteredByCategory = recipes.filter(
-        (recipe) => recipe.categoryName === categoryName
-      );
-      setFilteredRecipes(
-        searchQuery === ''
-          ? filteredByCategory
-          : filteredByCategory.filter((recipe) =>
-              recipe.name.toLowerCase().includes(searchQuery.toLowerCase())
-            )
-      );
-    }
+    setSelectedCategory(categoryName === selectedCategory ? null : categoryName);
     setIsDropdownVisible(false);
   };
 
+  const filteredRecipes =
+    selectedCategory === null
+      ? recipes
+      : recipes.filter((recipe) => recipe.categoryName === selectedCategory);
+
   // Create the dynamic stylesheet after theme is available
   const styles = createStyles(theme, itemWidth, numColumns, horizontalSpacing);
 
@@ -195,6 +201,8 @@ export default function OverviewScreen({ navigation }) {
         keyExtractor={(item) => item.id.toString()}
         numColumns={numColumns}
         contentContainerStyle={styles.flatListContent}
+        onEndReached={loadMore}
+        onEndReachedThreshold={0.5}
       />
     </View>
   );
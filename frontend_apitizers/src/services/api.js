@@ -4,17 +4,36 @@ const BASE_URL = 'http://localhost:8080/api';
 
 import { Platform } from 'react-native';
 
-export const fetchRecipes = async () => {
+// One page of the keyset paginated list; pass the returned nextCursor to get the next one
+export const fetchRecipePage = async (after = null, limit = 20, favorite = false) => {
+  const params = new URLSearchParams({ limit: String(limit) });
+  if (after) {
+    params.append('after', after);
+  }
+  if (favorite) {
+    params.append('favorite', 'true');
+  }
+  const response = await fetch(`${BASE_URL}/recipes?${params.toString()}`);
+  if (!response.ok) {
+    throw new Error('Failed to fetch recipes');
+  }
+  return await response.json();
+};
+
+export const searchRecipes = async (query, after = null, limit = 20) => {
   try {
-    const response = await fetch(`${BASE_URL}/recipes`);
+    const params = new URLSearchParams({ q: query, limit: String(limit) });
+    if (after) {
+      params.append('after', after);
+    }
+    const response = await fetch(`${BASE_URL}/recipes/search?${params.toString()}`);
     if (!response.ok) {
-      throw new Error('Failed to fetch recipes');
+      throw new Error('Failed to search recipes');
     }
-    const data = await response.json();
-    return data;
+    return await response.json();
   } catch (error) {
     console.error(error);
-    return [];
+    return { items: [], nextCursor: null };
   }
 };
 